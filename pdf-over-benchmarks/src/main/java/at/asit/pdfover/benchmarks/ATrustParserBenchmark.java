@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.gui.bku.mobile.ATrustParser;
+
+/**
+ * Parsing of A-Trust mobile BKU pages
+ *
+ * The pages under {@code atrust/} mirror the structure of the pages served
+ * during a Handy-Signatur session (one form, the element ids the parser
+ * looks for, ASP.NET view state), with placeholder contents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ATrustParserBenchmark {
+
+	private static final String BASE = "https://www.handy-signatur.at/mobile/https/";
+
+	@Param({ "identification", "sms-tan", "qr-code", "waiting-for-app", "error", "session-closed" })
+	public String page;
+
+	private URI baseURI;
+	private String content;
+
+	/**
+	 * Read a recorded page
+	 * @param name page name
+	 * @return page contents
+	 * @throws IOException
+	 */
+	static String readPage(String name) throws IOException {
+		try (InputStream is = ATrustParserBenchmark.class.getResourceAsStream("atrust/" + name + ".html")) {
+			if (is == null)
+				throw new IOException("No recorded page " + name);
+			return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Get the address a recorded page was served from
+	 * @param name page name
+	 * @return page address
+	 */
+	static URI getPageURI(String name) {
+		switch (name) {
+			case "identification":
+				return URI.create(BASE + "Identification.aspx?sid=3A7F0C2D");
+			case "error":
+				return URI.create(BASE + "error.aspx?sid=3A7F0C2D");
+			case "session-closed":
+				return URI.create(BASE + "SessionClosed.aspx?sid=3A7F0C2D");
+			default:
+				return URI.create(BASE + "Signature.aspx?sid=3A7F0C2D");
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		this.baseURI = getPageURI(this.page);
+		this.content = readPage(this.page);
+		/* fail early if a page no longer matches what the parser expects */
+		ATrustParser.Parse(this.baseURI, "text/html", this.content);
+	}
+
+	@Benchmark
+	public ATrustParser.Result parse() {
+		return ATrustParser.Parse(this.baseURI, "text/html", this.content);
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import at.asit.pdfover.gui.workflow.states.PrepareConfigurationState;
+import at.asit.pdfover.signer.DocumentSource;
+import at.asit.pdfover.signer.TemporaryFileDocumentSource;
+
+/**
+ * Test data shared by the benchmarks
+ */
+public final class BenchmarkFixtures {
+
+	/** Alias of the key in the test keystore */
+	public static final String KEY_ALIAS = "pdf-over-benchmark";
+	/** Password of the test keystore and its key */
+	public static final String KEYSTORE_PASSWORD = "benchmark";
+	/** Type of the test keystore */
+	public static final String KEYSTORE_TYPE = "PKCS12";
+
+	/**
+	 * JVM argument for forks of benchmarks that use the PDF-Over configuration
+	 * directory, so they never touch the developer's own ~/.pdf-over
+	 *
+	 * The path is relative to the working directory JMH was started in.
+	 */
+	public static final String ISOLATED_HOME = "-Duser.home=target/benchmark-home";
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * Make sure the PDF-Over / PDF-AS configuration exists, as on first start
+	 *
+	 * Only call this from forks started with {@link #ISOLATED_HOME}.
+	 * @throws Exception
+	 */
+	public static void ensureConfiguration() throws Exception {
+		PrepareConfigurationState.ensureConfigurationDirectory();
+	}
+
+	/**
+	 * Create a PKCS#12 keystore with a self-signed RSA key using the JDK keytool
+	 * @param directory the directory to create the keystore in
+	 * @return the keystore file
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static File createKeystore(File directory) throws IOException, InterruptedException {
+		File keystore = new File(directory, "benchmark.p12");
+		String keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool").getPath();
+		Process process = new ProcessBuilder(keytool, "-genkeypair",
+				"-keystore", keystore.getPath(),
+				"-storetype", KEYSTORE_TYPE,
+				"-storepass", KEYSTORE_PASSWORD,
+				"-keypass", KEYSTORE_PASSWORD,
+				"-alias", KEY_ALIAS,
+				"-keyalg", "RSA",
+				"-keysize", "2048",
+				"-sigalg", "SHA256withRSA",
+				"-validity", "30",
+				"-dname", "CN=PDF-Over Benchmark, O=A-SIT, C=AT")
+				.redirectErrorStream(true)
+				.start();
+		String output;
+		try (InputStream is = process.getInputStream()) {
+			output = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		if (process.waitFor() != 0)
+			throw new IOException("keytool failed: " + output);
+		return keystore;
+	}
+
+	/**
+	 * Create a text document
+	 * @param pages the number of A4 pages
+	 * @return the PDF
+	 * @throws IOException
+	 */
+	public static byte[] createDocument(int pages) throws IOException {
+		try (PDDocument document = new PDDocument(); ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+			for (int p = 1; p <= pages; ++p) {
+				PDPage page = new PDPage(PDRectangle.A4);
+				document.addPage(page);
+				try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+					content.beginText();
+					content.setFont(PDType1Font.HELVETICA, 10);
+					content.setLeading(12);
+					content.newLineAtOffset(50, 780);
+					for (int line = 0; line < 60; ++line) {
+						content.showText("Page " + p + ", line " + line +
+								": Lorem ipsum dolor sit amet, consectetur adipiscing elit.");
+						content.newLine();
+					}
+					content.endText();
+				}
+			}
+			document.save(os);
+			return os.toByteArray();
+		}
+	}
+
+	/**
+	 * Create a photo-like image (a gradient, so it does not compress to nothing)
+	 * @param width image width
+	 * @param height image height
+	 * @return the image
+	 */
+	public static BufferedImage createImage(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setPaint(new GradientPaint(0, 0, Color.ORANGE, width, height, Color.BLUE));
+		g.fillRect(0, 0, width, height);
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < 50; ++i)
+			g.drawOval(i * width / 100, i * height / 100, width / 2, height / 2);
+		g.dispose();
+		return image;
+	}
+
+	/**
+	 * Write an image file
+	 * @param image the image
+	 * @param format ImageIO format name
+	 * @param file the target file
+	 * @return the target file
+	 * @throws IOException
+	 */
+	public static File writeImage(BufferedImage image, String format, File file) throws IOException {
+		if (!ImageIO.write(image, format, file))
+			throw new IOException("No ImageIO writer for " + format);
+		return file;
+	}
+
+	/**
+	 * Create a temporary working directory
+	 * @return the directory
+	 * @throws IOException
+	 */
+	public static File createTempDirectory() throws IOException {
+		File directory = Files.createTempDirectory("pdf-over-benchmark").toFile();
+		directory.deleteOnExit();
+		return directory;
+	}
+
+	/**
+	 * Release a signed document
+	 * @param document the document
+	 */
+	public static void dispose(DocumentSource document) {
+		if (document instanceof TemporaryFileDocumentSource)
+			((TemporaryFileDocumentSource) document).dispose();
+	}
+
+	/**
+	 * Delete a directory and its contents
+	 * @param directory the directory
+	 */
+	public static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		directory.delete();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.signer.SignResult;
+import at.asit.pdfover.signer.pdfas.PdfAs4Signer;
+
+/**
+ * Keystore signing throughput with concurrent transactions
+ *
+ * Each thread prepares and signs its own document. With per-transaction
+ * PDF-AS configurations there is no shared lock, so throughput should
+ * grow close to linearly with the thread count, up to the number of cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.ISOLATED_HOME)
+public class ConcurrentSigningBenchmark {
+
+	private static SignResult prepareAndSign(SigningBenchmark.Fixture fixture) throws Exception {
+		SignResult result = PdfAs4Signer.sign(fixture.prepare());
+		BenchmarkFixtures.dispose(result.getSignedDocument());
+		return result;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public SignResult threads1(SigningBenchmark.Fixture fixture) throws Exception {
+		return prepareAndSign(fixture);
+	}
+
+	@Benchmark
+	@Threads(2)
+	public SignResult threads2(SigningBenchmark.Fixture fixture) throws Exception {
+		return prepareAndSign(fixture);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public SignResult threads4(SigningBenchmark.Fixture fixture) throws Exception {
+		return prepareAndSign(fixture);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public SignResult threads8(SigningBenchmark.Fixture fixture) throws Exception {
+		return prepareAndSign(fixture);
+	}
+}
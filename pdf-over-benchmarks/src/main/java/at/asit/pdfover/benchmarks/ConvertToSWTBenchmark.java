@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.commons.utils.ImageUtil;
+
+/**
+ * AWT to SWT image conversion of a signature placeholder preview
+ *
+ * The image has the size of a signature block rendered at 4x 72 DPI, as the
+ * placeholder preview is. {@code generic} is the per-pixel conversion,
+ * {@code convertToSWT} takes the scanline copy for the supported layouts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertToSWTBenchmark {
+
+	/** signature block of 240 x 90 pt at 4x 72 DPI */
+	private static final int WIDTH = 240 * 4;
+	private static final int HEIGHT = 90 * 4;
+
+	@Param({ "TYPE_INT_RGB", "TYPE_3BYTE_BGR" })
+	public String imageType;
+
+	private BufferedImage image;
+
+	@Setup
+	public void setup() throws Exception {
+		int type = BufferedImage.class.getField(this.imageType).getInt(null);
+		this.image = new BufferedImage(WIDTH, HEIGHT, type);
+		Graphics2D g = this.image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, WIDTH, HEIGHT);
+		g.setColor(Color.BLACK);
+		g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 40));
+		for (int y = 60; y < HEIGHT; y += 60)
+			g.drawString("Signatory: Max Mustermann 2024-01-01T12:00:00Z", 20, y);
+		g.setColor(Color.BLUE);
+		g.drawRect(0, 0, WIDTH - 1, HEIGHT - 1);
+		g.dispose();
+	}
+
+	@Benchmark
+	public ImageData convertToSWT() {
+		return ImageUtil.convertToSWT(this.image);
+	}
+
+	@Benchmark
+	public ImageData generic() {
+		return ImageUtil.convertGenericToSWT(this.image);
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.signer.Emblem;
+
+/**
+ * {@link Emblem#getCachedFileName()}, which runs for every placeholder
+ * preview and every signature with an emblem
+ *
+ * {@code hit} is a fresh instance finding the scaled copy in the cache
+ * directory, {@code miss} has to decode, scale and write the scaled copy.
+ * Like the application, this uses the emblem cache in the PDF-Over
+ * configuration directory, below the fork's isolated home directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.ISOLATED_HOME)
+public class EmblemBenchmark {
+
+	/**
+	 * An emblem photo
+	 */
+	@State(Scope.Benchmark)
+	public static class Fixture {
+		File directory;
+		byte[] png;
+		String emblem;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.directory = BenchmarkFixtures.createTempDirectory();
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			ImageIO.write(BenchmarkFixtures.createImage(2000, 1500), "png", os);
+			this.png = os.toByteArray();
+			this.emblem = Files.write(new File(this.directory, "emblem.png").toPath(), this.png).toString();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			deleteCached(this.emblem);
+			BenchmarkFixtures.delete(this.directory);
+		}
+	}
+
+	/**
+	 * An emblem file never seen before, for each invocation
+	 *
+	 * The image is the same, but bytes appended after its end make the
+	 * content, and so its hash, differ; decoders ignore them.
+	 */
+	@State(Scope.Thread)
+	public static class Unseen {
+		private long counter = 0;
+		String emblem;
+
+		@Setup(Level.Invocation)
+		public void setup(Fixture fixture) throws Exception {
+			File file = new File(fixture.directory, "unseen-" + Thread.currentThread().getId() + ".png");
+			byte[] data = ByteBuffer.allocate(fixture.png.length + Long.BYTES)
+					.put(fixture.png).putLong(this.counter++).array();
+			this.emblem = Files.write(file.toPath(), data).toString();
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() {
+			deleteCached(this.emblem);
+			new File(this.emblem).delete();
+		}
+	}
+
+	private static void deleteCached(String emblem) {
+		String cached = new Emblem(emblem).getCachedFileName();
+		if (cached != null && !cached.equals(emblem))
+			new File(cached).delete();
+	}
+
+	@Benchmark
+	public String hit(Fixture fixture) {
+		return new Emblem(fixture.emblem).getCachedFileName();
+	}
+
+	@Benchmark
+	public String miss(Unseen unseen) {
+		return new Emblem(unseen.emblem).getCachedFileName();
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.multipart.ByteArrayPartSource;
+import org.apache.commons.httpclient.methods.multipart.FilePart;
+import org.apache.commons.httpclient.methods.multipart.MultipartRequestEntity;
+import org.apache.commons.httpclient.methods.multipart.Part;
+import org.apache.commons.httpclient.methods.multipart.StringPart;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.benchmarks.localbku.LocalBKUStandIn;
+import at.asit.pdfover.commons.Constants;
+import at.asit.pdfover.gui.bku.LocalBKUConnector;
+import at.asit.pdfover.gui.utils.HttpClientUtils;
+import at.asit.pdfover.signer.ByteArrayDocumentSource;
+import at.asit.pdfover.signer.pdfas.PdfAs4SLRequest;
+import at.gv.egiz.sl.util.SLMarschaller;
+
+/**
+ * Per-signature transport overhead of the local BKU connector
+ *
+ * One signature is the two security layer requests PDF-AS sends, an
+ * infobox read and a CMS signature request with the document, against a
+ * {@link LocalBKUStandIn}. {@code legacy} is the commons-httpclient 3
+ * connector PDF-Over used before, with a new client (and connection) per
+ * request and the response buffered into a string before unmarshalling;
+ * {@code pooled} is the current {@link LocalBKUConnector}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.ISOLATED_HOME)
+public class LocalBKUBenchmark {
+
+	private static final String INFOBOX_READ_REQUEST =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+			"<sl:InfoboxReadRequest xmlns:sl=\"http://www.buergerkarte.at/namespaces/securitylayer/1.2#\">" +
+			"<sl:InfoboxIdentifier>Certificates</sl:InfoboxIdentifier>" +
+			"<sl:BinaryFileParameters ContentIsXMLEntity=\"false\"/>" +
+			"</sl:InfoboxReadRequest>";
+
+	private static final String CMS_SIGNATURE_REQUEST =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+			"<sl:CreateCMSSignatureRequest xmlns:sl=\"http://www.buergerkarte.at/namespaces/securitylayer/1.2#\" PAdESCompatibility=\"true\">" +
+			"<sl:KeyboxIdentifier>SecureSignatureKeypair</sl:KeyboxIdentifier>" +
+			"<sl:DataObject Structure=\"detached\"><sl:MetaInfo><sl:MimeType>application/pdf</sl:MimeType></sl:MetaInfo>" +
+			"<sl:Content Reference=\"sign.pdf\"/></sl:DataObject>" +
+			"</sl:CreateCMSSignatureRequest>";
+
+	@Param({ "legacy", "pooled" })
+	public String connector;
+
+	@Param({ "1", "50" })
+	public int pages;
+
+	private LocalBKUStandIn server;
+	private URI bkuURL;
+	private byte[] document;
+	private LocalBKUConnector pooledConnector;
+
+	@Setup
+	public void setup() throws Exception {
+		this.server = new LocalBKUStandIn(new LocalBKUStandIn.Options());
+		this.bkuURL = this.server.getURI();
+		this.document = BenchmarkFixtures.createDocument(this.pages);
+		this.pooledConnector = new LocalBKUConnector(this.bkuURL);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%n%s: %d requests on %d connections%n", this.connector, this.server.requests.get(),
+				this.server.getConnections());
+		this.server.close();
+		HttpClientUtils.closeSharedClient();
+	}
+
+	/**
+	 * The connector as it was with commons-httpclient 3
+	 */
+	private static Object sendLegacy(URI bkuURL, String slRequest, byte[] signatureData) throws Exception {
+		HttpClient client = new HttpClient();
+		client.getParams().setParameter("http.useragent", Constants.APP_NAME_VERSION);
+		PostMethod method = new PostMethod(bkuURL.toString());
+		try {
+			if (signatureData == null) {
+				method.addParameter("XMLRequest", slRequest);
+			} else {
+				StringPart xmlpart = new StringPart("XMLRequest", slRequest, "UTF-8");
+				FilePart filepart = new FilePart("fileupload", new ByteArrayPartSource("sign.pdf", signatureData));
+				Part[] parts = { xmlpart, filepart };
+				method.setRequestEntity(new MultipartRequestEntity(parts, method.getParams()));
+			}
+
+			int returnCode = client.executeMethod(method);
+			if (returnCode != HttpStatus.SC_OK)
+				throw new IllegalStateException(method.getResponseBodyAsString());
+			return SLMarschaller.unmarshalFromString(method.getResponseBodyAsString());
+		} finally {
+			/* the old connector left this to the garbage collector */
+			method.releaseConnection();
+		}
+	}
+
+	private Object sendPooled(String slRequest, byte[] signatureData) throws Exception {
+		return this.pooledConnector.handleSLRequestUnmarshalled(new PdfAs4SLRequest(slRequest,
+				(signatureData == null) ? null : new ByteArrayDocumentSource(signatureData)));
+	}
+
+	@Benchmark
+	public Object signature() throws Exception {
+		if ("legacy".equals(this.connector)) {
+			sendLegacy(this.bkuURL, INFOBOX_READ_REQUEST, null);
+			return sendLegacy(this.bkuURL, CMS_SIGNATURE_REQUEST, this.document);
+		}
+		sendPooled(INFOBOX_READ_REQUEST, null);
+		return sendPooled(CMS_SIGNATURE_REQUEST, this.document);
+	}
+}
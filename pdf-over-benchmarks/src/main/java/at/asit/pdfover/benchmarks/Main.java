@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs JMH, writing JSON results unless another result format was requested
+ *
+ * The default result file is named after the PDF-Over version, so results
+ * of different builds can be kept side by side and compared.
+ */
+public final class Main {
+
+	private Main() {
+	}
+
+	/**
+	 * Entry point
+	 * @param args JMH command line arguments
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+		if (!jmhArgs.contains("-rf") && !jmhArgs.contains("-rff")) {
+			String version = Main.class.getPackage().getImplementationVersion();
+			jmhArgs.add("-rf");
+			jmhArgs.add("json");
+			jmhArgs.add("-rff");
+			jmhArgs.add("jmh-result-" + (version == null ? "dev" : version) + ".json");
+		}
+		org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.commons.Profile;
+import at.asit.pdfover.signer.SignaturePosition;
+import at.asit.pdfover.signer.pdfas.PdfAs4SignatureParameter;
+import at.asit.pdfover.signer.pdfas.PdfAs4SignaturePlaceholder;
+
+/**
+ * Signature block preview rendering, {@link PdfAs4SignaturePlaceholder#For}
+ *
+ * {@code hit} finds the preview in memory, {@code miss} has a signature note
+ * never used before, so PDF-AS renders the preview and it is converted and
+ * stored in the disk cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.ISOLATED_HOME)
+public class PlaceholderBenchmark {
+
+	@Param({ "SIGNATURBLOCK_SMALL", "AMTSSIGNATURBLOCK" })
+	public String profile;
+
+	private long counter = 0;
+
+	private PdfAs4SignatureParameter createParameter(String note) {
+		PdfAs4SignatureParameter parameter = new PdfAs4SignatureParameter();
+		parameter.signaturePosition = new SignaturePosition();
+		parameter.signatureLanguage = "en";
+		parameter.signatureProfile = Profile.valueOf(this.profile);
+		parameter.signatureNote = note;
+		return parameter;
+	}
+
+	private static PdfAs4SignaturePlaceholder await(PdfAs4SignatureParameter parameter) throws Exception {
+		CompletableFuture<PdfAs4SignaturePlaceholder> result = new CompletableFuture<>();
+		PdfAs4SignaturePlaceholder.For(parameter, result::complete);
+		return result.get();
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		BenchmarkFixtures.ensureConfiguration();
+		if (!await(createParameter(null)).hasImage())
+			throw new IllegalStateException("Placeholder generation failed");
+	}
+
+	@Benchmark
+	public PdfAs4SignaturePlaceholder hit() throws Exception {
+		return await(createParameter(null));
+	}
+
+	@Benchmark
+	public PdfAs4SignaturePlaceholder miss() throws Exception {
+		return await(createParameter("Benchmark " + (this.counter++)));
+	}
+}
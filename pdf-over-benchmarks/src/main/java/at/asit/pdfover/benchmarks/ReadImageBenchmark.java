@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.commons.utils.ImageUtil;
+
+/**
+ * Reading an emblem image with {@link ImageUtil#readImageWithEXIFRotation}
+ *
+ * {@code full} decodes the whole image, {@code bounded} decodes it for the
+ * emblem preview size, as the configuration dialog does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadImageBenchmark {
+
+	@Param({ "jpg", "png" })
+	public String format;
+
+	@Param({ "4000" })
+	public int size;
+
+	private File directory;
+	private File image;
+
+	@Setup
+	public void setup() throws Exception {
+		this.directory = BenchmarkFixtures.createTempDirectory();
+		this.image = BenchmarkFixtures.writeImage(BenchmarkFixtures.createImage(this.size, this.size * 3 / 4),
+				this.format, new File(this.directory, "emblem." + this.format));
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkFixtures.delete(this.directory);
+	}
+
+	@Benchmark
+	public BufferedImage full() throws Exception {
+		return ImageUtil.readImageWithEXIFRotation(this.image);
+	}
+
+	@Benchmark
+	public BufferedImage bounded() throws Exception {
+		return ImageUtil.readImageWithEXIFRotation(this.image, 480, 600);
+	}
+}
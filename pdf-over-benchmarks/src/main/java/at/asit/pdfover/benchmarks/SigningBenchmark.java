@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks;
+
+// Imports
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.asit.pdfover.signer.ByteArrayDocumentSource;
+import at.asit.pdfover.signer.SignResult;
+import at.asit.pdfover.signer.SignaturePosition;
+import at.asit.pdfover.signer.pdfas.PdfAs4SignatureParameter;
+import at.asit.pdfover.signer.pdfas.PdfAs4Signer;
+import at.asit.pdfover.signer.pdfas.PdfAs4SigningState;
+
+/**
+ * {@link PdfAs4Signer#prepare} and {@link PdfAs4Signer#sign} with a PKCS#12 keystore,
+ * for documents of different sizes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.ISOLATED_HOME)
+public class SigningBenchmark {
+
+	/**
+	 * Keystore and input document
+	 */
+	@State(Scope.Benchmark)
+	public static class Fixture {
+		@Param({ "1", "20", "200" })
+		public int pages;
+
+		File directory;
+		File keystore;
+		byte[] document;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			BenchmarkFixtures.ensureConfiguration();
+			this.directory = BenchmarkFixtures.createTempDirectory();
+			this.keystore = BenchmarkFixtures.createKeystore(this.directory);
+			this.document = BenchmarkFixtures.createDocument(this.pages);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			BenchmarkFixtures.delete(this.directory);
+		}
+
+		PdfAs4SignatureParameter createParameter() {
+			PdfAs4SignatureParameter parameter = new PdfAs4SignatureParameter();
+			parameter.inputDocument = new ByteArrayDocumentSource(this.document);
+			parameter.signaturePosition = new SignaturePosition();
+			parameter.signatureLanguage = "en";
+			return parameter;
+		}
+
+		PdfAs4SigningState prepare() throws Exception {
+			PdfAs4SigningState state = PdfAs4Signer.prepare(createParameter());
+			state.setKeystoreSigner(this.keystore.getPath(), BenchmarkFixtures.KEY_ALIAS,
+					BenchmarkFixtures.KEYSTORE_PASSWORD, BenchmarkFixtures.KEYSTORE_PASSWORD,
+					BenchmarkFixtures.KEYSTORE_TYPE);
+			return state;
+		}
+	}
+
+	/**
+	 * A prepared transaction for each sign() invocation
+	 */
+	@State(Scope.Thread)
+	public static class Prepared {
+		PdfAs4SigningState state;
+
+		@Setup(Level.Invocation)
+		public void setup(Fixture fixture) throws Exception {
+			this.state = fixture.prepare();
+		}
+	}
+
+	@Benchmark
+	public PdfAs4SigningState prepare(Fixture fixture) throws Exception {
+		return PdfAs4Signer.prepare(fixture.createParameter());
+	}
+
+	@Benchmark
+	public SignResult sign(Prepared prepared) throws Exception {
+		SignResult result = PdfAs4Signer.sign(prepared.state);
+		BenchmarkFixtures.dispose(result.getSignedDocument());
+		return result;
+	}
+
+	@Benchmark
+	public SignResult prepareAndSign(Fixture fixture) throws Exception {
+		SignResult result = PdfAs4Signer.sign(fixture.prepare());
+		BenchmarkFixtures.dispose(result.getSignedDocument());
+		return result;
+	}
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks.atrust;
+
+// Imports
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import at.asit.pdfover.commons.Constants;
+
+/**
+ * Local stand-in for the A-Trust mobile BKU
+ *
+ * Replays the page flow {@link at.asit.pdfover.gui.bku.mobile.ATrustParser}
+ * understands: username/password, then either SMS-TAN or a QR code with
+ * {@code qrpoll} long polling, error pages, and finally the security layer
+ * response. The responses are not real signatures. A successful login is
+ * remembered in a cookie, so that later requests with it skip the login.
+ *
+ * Point PDF-Over at it with
+ * {@code -Dpdfover.mobilebku.url=http://127.0.0.1:PORT/mobile/https-security-layer-request/default.aspx}
+ * (see {@link Constants#MOBILE_BKU_URL_PROPERTY}), or run it from
+ * {@link MobileBKULoadHarness}.
+ */
+public class ATrustStandIn implements AutoCloseable {
+
+	/**
+	 * Behaviour of the stand-in server
+	 */
+	public static class Options {
+		/** port to listen on, 0 picks a free one */
+		public int port = 0;
+		/** the mobile number / user name that is accepted */
+		public String username = "+436601234567";
+		/** the password that is accepted */
+		public String password = "benchmark";
+		/** the TAN that is accepted */
+		public String tan = "123456";
+		/** use the QR code flow (true) or the SMS-TAN flow (false) */
+		public boolean qrCode = false;
+		/** time between showing the QR code and the (simulated) app confirming, in ms */
+		public long appConfirmDelay = 1000;
+		/** how long a long poll request is held open at most, in ms */
+		public long longPollTimeout = 5000;
+		/** added to every response, in ms */
+		public long latency = 0;
+		/** random additional latency of up to this much, in ms */
+		public long latencyJitter = 0;
+		/** fraction of requests answered with HTTP 500 */
+		public double httpErrorRate = 0;
+		/** fraction of page requests that end the session (SessionClosed.aspx) */
+		public double sessionErrorRate = 0;
+		/** how long a login is remembered, in ms; 0 to always ask */
+		public long loginLifetime = 10 * 60 * 1000;
+	}
+
+	private static final String SL_REQUEST_PATH = "/mobile/https-security-layer-request/default.aspx";
+	private static final String PAGE_PATH = "/mobile/https/";
+	/* the session id the recorded pages were saved with */
+	private static final String RECORDED_SID = "3A7F0C2D";
+	private static final String LOGIN_COOKIE = "ATrustStandInLogin";
+
+	private static final String SL_RESPONSE =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+			"<sl:CreateCMSSignatureResponse xmlns:sl=\"http://www.buergerkarte.at/namespaces/securitylayer/1.2#\">" +
+			"<sl:CMSSignature>MAA=</sl:CMSSignature>" +
+			"</sl:CreateCMSSignatureResponse>";
+
+	/* 1x1 white PNG */
+	private static final byte[] QR_IMAGE = Base64.getDecoder().decode(
+			"iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAAAAAA6fptVAAAACklEQVR4nGP4DwABAQEAsTj2FAAAAABJRU5ErkJggg==");
+
+	private enum Step { IDENTIFICATION, SIGNATURE, DONE, CLOSED }
+
+	private static class Session {
+		final String sid;
+		volatile Step step = Step.IDENTIFICATION;
+		/* set when the QR code is first shown */
+		volatile long appConfirmAt = 0;
+
+		Session(String sid) {
+			this.sid = sid;
+		}
+	}
+
+	private final Options options;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "ATrustStandIn");
+		t.setDaemon(true);
+		return t;
+	});
+	private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+	private final Map<String, String> pages = new ConcurrentHashMap<>();
+	/* login cookie -> expiry time */
+	private final Map<String, Long> logins = new ConcurrentHashMap<>();
+
+	/** number of requests served */
+	public final AtomicLong requests = new AtomicLong();
+	/** number of injected failures */
+	public final AtomicLong injectedFailures = new AtomicLong();
+	/** number of sessions that skipped the login */
+	public final AtomicLong resumedLogins = new AtomicLong();
+
+	/**
+	 * Start a stand-in server on the loopback interface
+	 * @param options server behaviour
+	 * @throws IOException
+	 */
+	public ATrustStandIn(Options options) throws IOException {
+		this.options = options;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), options.port), 128);
+		this.server.createContext("/", this::handle);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+
+	/**
+	 * @return the URL to post security layer requests to
+	 */
+	public URI getURI() {
+		return URI.create("http://127.0.0.1:" + this.server.getAddress().getPort() + SL_REQUEST_PATH);
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	private String getPage(String name, String sid) throws IOException {
+		String page = this.pages.get(name);
+		if (page == null) {
+			try (InputStream is = ATrustStandIn.class.getResourceAsStream(name + ".html")) {
+				if (is == null)
+					throw new IOException("No page " + name);
+				page = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+			}
+			this.pages.put(name, page);
+		}
+		return page.replace(RECORDED_SID, sid);
+	}
+
+	private static String getQueryParameter(URI uri, String name) {
+		String query = uri.getRawQuery();
+		if (query == null)
+			return null;
+		for (String pair : query.split("&")) {
+			if (pair.startsWith(name + "="))
+				return pair.substring(name.length() + 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Get a field of a multipart/form-data body, as sent by MobileBKUConnector's form submits
+	 */
+	private static String getFormField(String body, String name) {
+		Matcher m = Pattern.compile("name=\"" + Pattern.quote(name) + "\"[^\\r\\n]*\\r\\n(?:[^\\r\\n]+\\r\\n)*\\r\\n(.*?)\\r\\n--",
+				Pattern.DOTALL).matcher(body);
+		return m.find() ? m.group(1) : null;
+	}
+
+	private static boolean chance(double rate) {
+		return (rate > 0) && (ThreadLocalRandom.current().nextDouble() < rate);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		this.requests.incrementAndGet();
+		try {
+			String body;
+			try (InputStream is = exchange.getRequestBody()) {
+				body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+			}
+
+			long delay = this.options.latency;
+			if (this.options.latencyJitter > 0)
+				delay += ThreadLocalRandom.current().nextLong(this.options.latencyJitter + 1);
+			if (delay > 0)
+				Thread.sleep(delay);
+
+			if (chance(this.options.httpErrorRate)) {
+				this.injectedFailures.incrementAndGet();
+				send(exchange, 500, "text/plain; charset=utf-8", "Internal Server Error".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+
+			URI uri = exchange.getRequestURI();
+			String path = uri.getPath();
+			boolean isPost = "POST".equals(exchange.getRequestMethod());
+
+			if (path.equals(SL_REQUEST_PATH) && isPost) {
+				Session session = new Session(UUID.randomUUID().toString().replace("-", "").substring(0, 16));
+				this.sessions.put(session.sid, session);
+				if (isLoggedIn(exchange)) {
+					this.resumedLogins.incrementAndGet();
+					session.step = Step.SIGNATURE;
+					redirect(exchange, "Signature.aspx", session);
+				} else {
+					redirect(exchange, "Identification.aspx", session);
+				}
+				return;
+			}
+
+			Session session = null;
+			String sid = getQueryParameter(uri, "sid");
+			if (sid != null)
+				session = this.sessions.get(sid);
+			if (session == null || !path.startsWith(PAGE_PATH)) {
+				send(exchange, 404, "text/plain; charset=utf-8", "Not Found".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+
+			String page = path.substring(PAGE_PATH.length());
+			switch (page) {
+				case "LongPoll.aspx":
+					longPoll(exchange, session);
+					return;
+				case "QrCode.aspx":
+					send(exchange, 200, "image/png", QR_IMAGE);
+					return;
+				default:
+					break;
+			}
+
+			if (session.step == Step.CLOSED || chance(this.options.sessionErrorRate)) {
+				if (session.step != Step.CLOSED)
+					this.injectedFailures.incrementAndGet();
+				session.step = Step.CLOSED;
+				if (!page.equals("SessionClosed.aspx")) {
+					redirect(exchange, "SessionClosed.aspx", session);
+				} else {
+					this.sessions.remove(session.sid);
+					sendPage(exchange, "session-closed", session);
+				}
+				return;
+			}
+
+			switch (page) {
+				case "Identification.aspx":
+					if (!isPost) {
+						sendPage(exchange, "identification", session);
+					} else if (this.options.username.equals(getFormField(body, "handynummer")) &&
+							this.options.password.equals(getFormField(body, "signaturpasswort"))) {
+						session.step = Step.SIGNATURE;
+						rememberLogin(exchange);
+						redirect(exchange, "Signature.aspx", session);
+					} else {
+						redirect(exchange, "error.aspx", session);
+					}
+					return;
+				case "Signature.aspx":
+					signature(exchange, session, isPost, body);
+					return;
+				case "error.aspx":
+					if (!isPost)
+						sendPage(exchange, "error", session);
+					else
+						redirect(exchange, (session.step == Step.IDENTIFICATION) ? "Identification.aspx" : "Signature.aspx", session);
+					return;
+				default:
+					send(exchange, 404, "text/plain; charset=utf-8", "Not Found".getBytes(StandardCharsets.UTF_8));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private boolean isLoggedIn(HttpExchange exchange) {
+		for (String header : exchange.getRequestHeaders().getOrDefault("Cookie", List.of())) {
+			for (String cookie : header.split(";")) {
+				String[] pair = cookie.trim().split("=", 2);
+				if ((pair.length == 2) && pair[0].equals(LOGIN_COOKIE)) {
+					Long expiry = this.logins.get(pair[1]);
+					if ((expiry != null) && (expiry > System.currentTimeMillis()))
+						return true;
+					this.logins.remove(pair[1]);
+				}
+			}
+		}
+		return false;
+	}
+
+	private void rememberLogin(HttpExchange exchange) {
+		if (this.options.loginLifetime <= 0)
+			return;
+		String login = UUID.randomUUID().toString();
+		this.logins.put(login, System.currentTimeMillis() + this.options.loginLifetime);
+		exchange.getResponseHeaders().add("Set-Cookie", LOGIN_COOKIE + "=" + login + "; Path=/; HttpOnly");
+	}
+
+	private void signature(HttpExchange exchange, Session session, boolean isPost, String body) throws IOException {
+		if (session.step == Step.IDENTIFICATION) {
+			redirect(exchange, "Identification.aspx", session);
+			return;
+		}
+
+		if (this.options.qrCode) {
+			if (session.appConfirmAt == 0)
+				session.appConfirmAt = System.currentTimeMillis() + this.options.appConfirmDelay;
+			if (System.currentTimeMillis() >= session.appConfirmAt)
+				session.step = Step.DONE;
+		} else if (isPost) {
+			if (!this.options.tan.equals(getFormField(body, "input_tan"))) {
+				redirect(exchange, "error.aspx", session);
+				return;
+			}
+			session.step = Step.DONE;
+			redirect(exchange, "Signature.aspx", session);
+			return;
+		}
+
+		if (session.step == Step.DONE) {
+			this.sessions.remove(session.sid);
+			send(exchange, 200, "application/xml; charset=utf-8", SL_RESPONSE.getBytes(StandardCharsets.UTF_8));
+		} else {
+			sendPage(exchange, this.options.qrCode ? "qr-code" : "sms-tan", session);
+		}
+	}
+
+	private void longPoll(HttpExchange exchange, Session session) throws IOException, InterruptedException {
+		long now = System.currentTimeMillis();
+		long confirmAt = session.appConfirmAt;
+		boolean fin = (confirmAt != 0) && (confirmAt <= now + this.options.longPollTimeout);
+		long wait = fin ? (confirmAt - now) : this.options.longPollTimeout;
+		if (wait > 0)
+			Thread.sleep(wait);
+		String json = "{\"Fin\":" + fin + ",\"Wait\":" + !fin + ",\"Error\":false}";
+		send(exchange, 200, "application/json; charset=utf-8", json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void sendPage(HttpExchange exchange, String name, Session session) throws IOException {
+		send(exchange, 200, "text/html; charset=utf-8", getPage(name, session.sid).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void redirect(HttpExchange exchange, String page, Session session) throws IOException {
+		exchange.getResponseHeaders().set("Location", PAGE_PATH + page + "?sid=" + session.sid);
+		exchange.sendResponseHeaders(302, -1);
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte[] content) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, content.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(content);
+		}
+	}
+
+	/**
+	 * Run the stand-in server until killed
+	 * @param args {@code [port [qr]]}
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		if (args.length > 0)
+			options.port = Integer.parseInt(args[0]);
+		if (args.length > 1)
+			options.qrCode = "qr".equalsIgnoreCase(args[1]);
+		ATrustStandIn server = new ATrustStandIn(options);
+		System.out.println("A-Trust stand-in listening at " + server.getURI());
+		System.out.println("User " + options.username + ", password " + options.password +
+				(options.qrCode ? ", QR code flow" : ", TAN " + options.tan));
+		Thread.currentThread().join();
+	}
+}
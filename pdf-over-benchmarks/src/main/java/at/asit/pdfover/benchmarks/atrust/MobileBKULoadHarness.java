@@ -0,0 +1,223 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks.atrust;
+
+// Imports
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import at.asit.pdfover.benchmarks.BenchmarkFixtures;
+import at.asit.pdfover.gui.bku.MobileBKUConnector;
+import at.asit.pdfover.gui.bku.mobile.MobileBKUSession;
+import at.asit.pdfover.gui.utils.HttpClientUtils;
+import at.asit.pdfover.signer.SignatureException;
+import at.asit.pdfover.signer.UserCancelledException;
+import at.asit.pdfover.signer.pdfas.PdfAs4SLRequest;
+
+/**
+ * Drives {@link MobileBKUConnector#handleSLRequest} concurrently against
+ * an {@link ATrustStandIn}, and reports throughput and latency percentiles
+ *
+ * Usage: {@code java -cp target/benchmarks.jar at.asit.pdfover.benchmarks.atrust.MobileBKULoadHarness [options]}
+ * <pre>
+ *   --clients N               concurrent signers (8)
+ *   --signatures N            signatures in total (200)
+ *   --batch N                 signatures per A-Trust session, each client logs in once per batch (1)
+ *   --qr                      QR code flow instead of SMS-TAN
+ *   --latency MS              server latency per request (0)
+ *   --jitter MS               random additional server latency (0)
+ *   --app-delay MS            time until the app confirms a QR code (1000)
+ *   --think-time MS           time the user takes per input (0)
+ *   --http-error-rate F       fraction of HTTP 500 responses (0)
+ *   --session-error-rate F    fraction of pages ending the session (0)
+ *   --wrong-password-rate F   fraction of signers mistyping their password once (0)
+ *   --url URL                 use an already running stand-in instead
+ *   --json FILE               also write the results as JSON
+ * </pre>
+ */
+public class MobileBKULoadHarness {
+
+	private static final String SL_REQUEST =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+			"<sl:CreateCMSSignatureRequest xmlns:sl=\"http://www.buergerkarte.at/namespaces/securitylayer/1.2#\" PAdESCompatibility=\"true\">" +
+			"<sl:KeyboxIdentifier>SecureSignatureKeypair</sl:KeyboxIdentifier>" +
+			"<sl:DataObject Structure=\"detached\"><sl:MetaInfo><sl:MimeType>application/pdf</sl:MimeType></sl:MetaInfo>" +
+			"<sl:Content Reference=\"sign.pdf\"/></sl:DataObject>" +
+			"</sl:CreateCMSSignatureRequest>";
+
+	private int clients = 8;
+	private int signatures = 200;
+	private int batch = 1;
+	private double wrongPasswordRate = 0;
+	private long thinkTime = 0;
+	private URI url = null;
+	private String jsonFile = null;
+	private final ATrustStandIn.Options serverOptions = new ATrustStandIn.Options();
+
+	private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+	private final Map<String, Integer> failures = Collections.synchronizedMap(new TreeMap<>());
+
+	private void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; ++i) {
+			String arg = args[i];
+			if (arg.equals("--qr")) {
+				this.serverOptions.qrCode = true;
+				continue;
+			}
+			if (i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + arg);
+			String value = args[++i];
+			switch (arg) {
+				case "--clients": this.clients = Integer.parseInt(value); break;
+				case "--signatures": this.signatures = Integer.parseInt(value); break;
+				case "--batch": this.batch = Integer.parseInt(value); break;
+				case "--latency": this.serverOptions.latency = Long.parseLong(value); break;
+				case "--jitter": this.serverOptions.latencyJitter = Long.parseLong(value); break;
+				case "--app-delay": this.serverOptions.appConfirmDelay = Long.parseLong(value); break;
+				case "--think-time": this.thinkTime = Long.parseLong(value); break;
+				case "--http-error-rate": this.serverOptions.httpErrorRate = Double.parseDouble(value); break;
+				case "--session-error-rate": this.serverOptions.sessionErrorRate = Double.parseDouble(value); break;
+				case "--wrong-password-rate": this.wrongPasswordRate = Double.parseDouble(value); break;
+				case "--url": this.url = URI.create(value); break;
+				case "--json": this.jsonFile = value; break;
+				default: throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+	}
+
+	private ScriptedMobileBKUState.Script createScript() {
+		ScriptedMobileBKUState.Script script = new ScriptedMobileBKUState.Script();
+		script.username = this.serverOptions.username;
+		script.password = this.serverOptions.password;
+		script.tan = this.serverOptions.tan;
+		script.thinkTime = this.thinkTime;
+		if (ThreadLocalRandom.current().nextDouble() < this.wrongPasswordRate)
+			script.firstPassword = "wrong" + this.serverOptions.password;
+		return script;
+	}
+
+	private void sign(URI bkuURL, MobileBKUSession session, byte[] document) {
+		ScriptedMobileBKUState state = new ScriptedMobileBKUState(createScript());
+		MobileBKUConnector connector = new MobileBKUConnector(state, bkuURL, session);
+		long start = System.nanoTime();
+		try {
+			connector.handleSLRequest(new PdfAs4SLRequest(SL_REQUEST, document));
+			this.latencies.add(System.nanoTime() - start);
+		} catch (UserCancelledException e) {
+			addFailure((state.lastError != null) ? state.lastError : "cancelled");
+		} catch (SignatureException e) {
+			Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+			addFailure(cause.getClass().getSimpleName() + ": " + cause.getMessage());
+		} catch (Exception e) {
+			addFailure(e.getClass().getSimpleName() + ": " + e.getMessage());
+		}
+	}
+
+	private void addFailure(String reason) {
+		this.failures.merge(reason, 1, Integer::sum);
+	}
+
+	private static double percentile(List<Long> sorted, double p) {
+		if (sorted.isEmpty())
+			return Double.NaN;
+		int index = (int) Math.ceil(p / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+	}
+
+	private void run() throws Exception {
+		byte[] document = BenchmarkFixtures.createDocument(1);
+
+		ATrustStandIn server = (this.url == null) ? new ATrustStandIn(this.serverOptions) : null;
+		URI bkuURL = (server != null) ? server.getURI() : this.url;
+		System.out.printf("%d signatures in batches of %d, %d clients, %s flow, against %s%n", this.signatures, this.batch,
+				this.clients, this.serverOptions.qrCode ? "QR code" : "SMS-TAN", bkuURL);
+
+		AtomicInteger remaining = new AtomicInteger(this.signatures);
+		ExecutorService executor = Executors.newFixedThreadPool(this.clients);
+		long start = System.nanoTime();
+		for (int i = 0; i < this.clients; ++i) {
+			executor.execute(() -> {
+				MobileBKUSession session = null;
+				for (int signed = 0; remaining.getAndDecrement() > 0; ++signed) {
+					if (signed % this.batch == 0)
+						session = new MobileBKUSession();
+					sign(bkuURL, session, document);
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (server != null)
+			server.close();
+
+		List<Long> sorted = new ArrayList<>(this.latencies);
+		Collections.sort(sorted);
+		int failed = 0;
+		for (int count : this.failures.values())
+			failed += count;
+
+		System.out.printf(Locale.ROOT, "completed %d, failed %d in %.2f s%n", sorted.size(), failed, seconds);
+		System.out.printf(Locale.ROOT, "throughput %.2f signatures/s%n", sorted.size() / seconds);
+		System.out.printf(Locale.ROOT, "latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+				percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+		if (server != null)
+			System.out.printf("server requests %d, injected failures %d, logins skipped %d%n", server.requests.get(),
+					server.injectedFailures.get(), server.resumedLogins.get());
+		System.out.println("HTTP client " + HttpClientUtils.getStatistics());
+		for (Map.Entry<String, Integer> failure : this.failures.entrySet())
+			System.out.printf("  %5d x %s%n", failure.getValue(), failure.getKey());
+
+		if (this.jsonFile != null)
+			writeJSON(sorted, failed, seconds);
+	}
+
+	private void writeJSON(List<Long> sorted, int failed, double seconds) throws IOException {
+		try (Writer out = new FileWriter(this.jsonFile)) {
+			out.write(String.format(Locale.ROOT,
+					"{\"clients\":%d,\"signatures\":%d,\"batch\":%d,\"flow\":\"%s\",\"completed\":%d,\"failed\":%d,\"seconds\":%.3f," +
+					"\"throughput\":%.3f,\"latencyMs\":{\"p50\":%.3f,\"p90\":%.3f,\"p99\":%.3f,\"max\":%.3f}}%n",
+					this.clients, this.signatures, this.batch, this.serverOptions.qrCode ? "qr" : "sms", sorted.size(), failed, seconds,
+					sorted.size() / seconds, percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+					percentile(sorted, 100)));
+		}
+	}
+
+	/**
+	 * Entry point
+	 * @param args see class description
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		MobileBKULoadHarness harness = new MobileBKULoadHarness();
+		harness.parseArguments(args);
+		harness.run();
+		HttpClientUtils.closeSharedClient();
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks.atrust;
+
+// Imports
+import java.net.URI;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import at.asit.pdfover.gui.workflow.config.ConfigurationManager;
+import at.asit.pdfover.gui.workflow.states.MobileBKUState;
+import at.asit.pdfover.signer.UserCancelledException;
+
+/**
+ * A {@link MobileBKUState} without UI, answering the Mobile BKU prompts
+ * from a script
+ *
+ * Retries recoverable errors and gives up on unrecoverable ones, like a
+ * patient user would. FIDO2 is not supported.
+ */
+public class ScriptedMobileBKUState extends MobileBKUState {
+
+	/**
+	 * The answers of the simulated user
+	 */
+	public static class Script {
+		/** mobile number / user name */
+		public String username;
+		/** password, as entered after a wrong one */
+		public String password;
+		/** password entered on the first attempt, if different */
+		public String firstPassword;
+		/** TAN */
+		public String tan;
+		/** time the user takes to enter something, in ms */
+		public long thinkTime = 0;
+		/** how long to wait for the app at most, in ms */
+		public long appTimeout = 5 * 60 * 1000;
+	}
+
+	private final Script script;
+	private final ConfigurationManager config = new ConfigurationManager();
+	private final Semaphore pollingDone = new Semaphore(0);
+	private boolean firstAttempt = true;
+
+	/** the last error shown to the user */
+	public volatile String lastError = null;
+
+	/**
+	 * @param script the answers of the simulated user
+	 */
+	public ScriptedMobileBKUState(Script script) {
+		super(null);
+		this.script = script;
+	}
+
+	private void think() throws UserCancelledException {
+		if (this.script.thinkTime <= 0)
+			return;
+		try {
+			Thread.sleep(this.script.thinkTime);
+		} catch (InterruptedException e) {
+			throw new UserCancelledException(e);
+		}
+	}
+
+	private void waitForPolling() throws UserCancelledException {
+		try {
+			if (!this.pollingDone.tryAcquire(this.script.appTimeout, TimeUnit.MILLISECONDS))
+				throw new UserCancelledException("Timed out waiting for the app");
+		} catch (InterruptedException e) {
+			throw new UserCancelledException(e);
+		}
+	}
+
+	@Override
+	public ConfigurationManager getConfig() {
+		return this.config;
+	}
+
+	@Override
+	public void storeRememberedCredentialsTo(UsernameAndPassword output) {
+		/* nothing remembered */
+	}
+
+	@Override
+	public void rememberCredentialsIfNecessary(String username, String password) {
+		/* nothing remembered */
+	}
+
+	@Override
+	public void clearRememberedPassword() {
+		/* nothing remembered */
+	}
+
+	@Override
+	public void showInformationMessage(String message) {
+		/* acknowledged */
+	}
+
+	@Override
+	public void showRecoverableError(String errorMessage) {
+		this.lastError = errorMessage;
+	}
+
+	@Override
+	public void showUnrecoverableError(String errorMessage) throws UserCancelledException {
+		this.lastError = errorMessage;
+		throw new UserCancelledException(errorMessage);
+	}
+
+	@Override
+	public void getCredentialsFromUserTo(UsernameAndPassword credentials, String errorMessage) throws UserCancelledException {
+		think();
+		credentials.username = this.script.username;
+		credentials.password = (this.firstAttempt && this.script.firstPassword != null) ?
+				this.script.firstPassword : this.script.password;
+		this.firstAttempt = false;
+	}
+
+	@Override
+	public SMSTanResult getSMSTanFromUser(String referenceValue, URI signatureDataURI, boolean showFido2, String errorMessage) throws UserCancelledException {
+		think();
+		return new SMSTanResult(this.script.tan);
+	}
+
+	@Override
+	public void showQRCode(String referenceValue, URI qrCodeURI, URI signatureDataURI, boolean showSmsTan, boolean showFido2, String errorMessage) {
+		this.pollingDone.drainPermits();
+	}
+
+	@Override
+	public QRResult waitForQRCodeResult() throws UserCancelledException {
+		waitForPolling();
+		return QRResult.UPDATE;
+	}
+
+	@Override
+	public void signalQRScanned() {
+		this.pollingDone.release();
+	}
+
+	@Override
+	public void showWaitingForAppOpen(String referenceValue, URI signatureDataURI, boolean showSmsTan, boolean showFido2) {
+		this.pollingDone.drainPermits();
+	}
+
+	@Override
+	public AppOpenResult waitForAppOpen() throws UserCancelledException {
+		waitForPolling();
+		return AppOpenResult.UPDATE;
+	}
+
+	@Override
+	public void signalAppOpened() {
+		this.pollingDone.release();
+	}
+
+	@Override
+	public void showWaitingForAppBiometry(String referenceValue, URI signatureDataURI, boolean showSmsTan, boolean showFido2) {
+		this.pollingDone.drainPermits();
+	}
+
+	@Override
+	public AppBiometryResult waitForAppBiometry() throws UserCancelledException {
+		waitForPolling();
+		return AppBiometryResult.UPDATE;
+	}
+
+	@Override
+	public void signalAppBiometryDone() {
+		this.pollingDone.release();
+	}
+
+	@Override
+	public FIDO2Result promptUserForFIDO2Auth(String fido2Options, URI signatureDataURI, boolean showSmsTan) throws UserCancelledException {
+		throw new UserCancelledException("FIDO2 is not scripted");
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.benchmarks.localbku;
+
+// Imports
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import at.asit.pdfover.commons.Constants;
+
+/**
+ * Local stand-in for a local BKU (security layer over HTTP on 127.0.0.1:3495)
+ *
+ * Accepts security layer requests the way the local BKU connector sends
+ * them, as a form field {@code XMLRequest}, either url-encoded or as
+ * multipart with the document in {@code fileupload}, and answers null
+ * operations, infobox reads and CMS signature requests. The responses are
+ * not real signatures. Every other request gets an error response.
+ *
+ * Point PDF-Over at it with
+ * {@code -Dpdfover.localbku.url=http://127.0.0.1:PORT/http-security-layer-request}
+ * (see {@link Constants#LOCAL_BKU_URL_PROPERTY}).
+ */
+public class LocalBKUStandIn implements AutoCloseable {
+
+	/**
+	 * Behaviour of the stand-in server
+	 */
+	public static class Options {
+		/** port to listen on, 0 picks a free one */
+		public int port = 0;
+		/** added to every response, in ms */
+		public long latency = 0;
+		/** value of the server header, which decides whether PDF-Over uploads documents or sends them Base64 encoded */
+		public String serverHeader = "LocalBKUStandIn";
+		/** content of the certificate infobox, DER encoded */
+		public byte[] certificate = { 0x30, 0x00 };
+	}
+
+	private static final String SL_REQUEST_PATH = "/http-security-layer-request";
+	private static final String SL_NAMESPACE = "http://www.buergerkarte.at/namespaces/securitylayer/1.2#";
+
+	private static final Pattern REQUEST_TYPE = Pattern.compile("<(?:[\\w-]+:)?(\\w+)Request[\\s>/]");
+	private static final Pattern MULTIPART_XML_REQUEST = Pattern.compile(
+			"name=\"XMLRequest\"[^\\r\\n]*\\r\\n(?:[^\\r\\n]+\\r\\n)*\\r\\n(.*?)\\r\\n--", Pattern.DOTALL);
+
+	private final Options options;
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "LocalBKUStandIn");
+		t.setDaemon(true);
+		return t;
+	});
+	private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+	/** number of requests served */
+	public final AtomicLong requests = new AtomicLong();
+	/** number of request body bytes received */
+	public final AtomicLong bytesReceived = new AtomicLong();
+
+	/**
+	 * Start a stand-in server on the loopback interface
+	 * @param options server behaviour
+	 * @throws IOException
+	 */
+	public LocalBKUStandIn(Options options) throws IOException {
+		this.options = options;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), options.port), 128);
+		this.server.createContext(SL_REQUEST_PATH, this::handle);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+	}
+
+	/**
+	 * @return the URL to post security layer requests to
+	 */
+	public URI getURI() {
+		return URI.create("http://127.0.0.1:" + this.server.getAddress().getPort() + SL_REQUEST_PATH);
+	}
+
+	/**
+	 * @return number of distinct connections requests came in on
+	 */
+	public int getConnections() {
+		return this.clientPorts.size();
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Get the security layer request out of a request body
+	 * @param contentType the request's content type
+	 * @param body the request body
+	 * @return the security layer request, or null
+	 */
+	static String getXMLRequest(String contentType, byte[] body) {
+		if ((contentType != null) && contentType.startsWith("multipart/form-data")) {
+			/* ISO-8859-1 maps bytes one to one, so the (binary) document does not get in the way */
+			Matcher m = MULTIPART_XML_REQUEST.matcher(new String(body, StandardCharsets.ISO_8859_1));
+			if (!m.find())
+				return null;
+			return new String(m.group(1).getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+		}
+		for (String pair : new String(body, StandardCharsets.US_ASCII).split("&")) {
+			if (pair.startsWith("XMLRequest="))
+				return URLDecoder.decode(pair.substring("XMLRequest=".length()), StandardCharsets.UTF_8);
+		}
+		return null;
+	}
+
+	private String respond(String xmlRequest) {
+		Matcher m = (xmlRequest != null) ? REQUEST_TYPE.matcher(xmlRequest) : null;
+		String type = ((m != null) && m.find()) ? m.group(1) : "";
+		switch (type) {
+			case "NullOperation":
+				return "<sl:NullOperationResponse xmlns:sl=\"" + SL_NAMESPACE + "\"/>";
+			case "InfoboxRead":
+				return "<sl:InfoboxReadResponse xmlns:sl=\"" + SL_NAMESPACE + "\">" +
+						"<sl:BinaryFileData><sl:Base64Content>" + Base64.getEncoder().encodeToString(this.options.certificate) +
+						"</sl:Base64Content></sl:BinaryFileData>" +
+						"</sl:InfoboxReadResponse>";
+			case "CreateCMSSignature":
+				return "<sl:CreateCMSSignatureResponse xmlns:sl=\"" + SL_NAMESPACE + "\">" +
+						"<sl:CMSSignature>MAA=</sl:CMSSignature>" +
+						"</sl:CreateCMSSignatureResponse>";
+			default:
+				return "<sl:ErrorResponse xmlns:sl=\"" + SL_NAMESPACE + "\">" +
+						"<sl:ErrorCode>4000</sl:ErrorCode><sl:Info>Unsupported request</sl:Info>" +
+						"</sl:ErrorResponse>";
+		}
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		this.requests.incrementAndGet();
+		this.clientPorts.add(exchange.getRemoteAddress().getPort());
+		try {
+			byte[] body;
+			try (InputStream is = exchange.getRequestBody()) {
+				body = is.readAllBytes();
+			}
+			this.bytesReceived.addAndGet(body.length);
+
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				send(exchange, 405, "text/plain; charset=utf-8", "Method Not Allowed".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+
+			if (this.options.latency > 0)
+				Thread.sleep(this.options.latency);
+
+			String xmlRequest = getXMLRequest(exchange.getRequestHeaders().getFirst("Content-Type"), body);
+			String response = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + respond(xmlRequest);
+			exchange.getResponseHeaders().set("Server", this.options.serverHeader);
+			send(exchange, 200, "text/xml; charset=utf-8", response.getBytes(StandardCharsets.UTF_8));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte[] content) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, content.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(content);
+		}
+	}
+
+	/**
+	 * Run the stand-in server until killed
+	 * @param args {@code [port]}
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Options options = new Options();
+		if (args.length > 0)
+			options.port = Integer.parseInt(args[0]);
+		LocalBKUStandIn server = new LocalBKUStandIn(options);
+		System.out.println("Local BKU stand-in listening at " + server.getURI());
+		Thread.currentThread().join();
+	}
+}
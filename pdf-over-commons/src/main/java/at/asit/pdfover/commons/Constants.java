@@ -77,6 +77,9 @@ public class Constants {
 	/** Configuration directory */
 	public static final String CONFIG_DIRECTORY = System.getProperty("user.home") + File.separator + ".pdf-over";
 
+	/** Directory for temporary files (e.g. signed documents before they are saved) */
+	public static final String TEMP_DIRECTORY = CONFIG_DIRECTORY + File.separator + "tmp";
+
 	/** Directory for config backup on factory reset */
 	public static final String CONFIG_BACKUP_DIRECTORY = System.getProperty("user.home") + File.separator + ".pdf-over.old";
 
@@ -101,13 +104,25 @@ public class Constants {
 	/** The default target size for logo-only signatures (in mm) */
 	public final static double DEFAULT_LOGO_ONLY_SIZE = 23;
 
+	/** Signed documents larger than this are written to {@link #TEMP_DIRECTORY} instead of being kept in memory (in bytes) */
+	public final static long DEFAULT_OUTPUT_SPILL_THRESHOLD = 4 * 1024 * 1024;
+
+	/** Number of pending documents parsed ahead of the current one */
+	public final static int DEFAULT_PREPARE_LOOKAHEAD_DEPTH = 1;
+
 	/** Local BKU URL */
 	public static final String LOCAL_BKU_URL = "http://127.0.0.1:3495/http-security-layer-request";
 
+	/** System property to use a different Local BKU URL, e.g. a local stand-in server */
+	public static final String LOCAL_BKU_URL_PROPERTY = "pdfover.localbku.url";
+
 	/** Default Mobile BKU URL */
 	public static final URI MOBILE_BKU_URL = URI.create("https://service.a-trust.at/mobile/https-security-layer-request/default.aspx");
 	public static final URI MOBILE_BKU_URL_TEST = URI.create("https://hs-abnahme.a-trust.at/mobile/https-security-layer-request/default.aspx");
 
+	/** System property to use a different Mobile BKU URL, e.g. {@link #MOBILE_BKU_URL_TEST} or a local stand-in server */
+	public static final String MOBILE_BKU_URL_PROPERTY = "pdfover.mobilebku.url";
+
 	/** How far to displace the signature with the arrow keys */
 	public static final int SIGNATURE_KEYBOARD_POSITIONING_OFFSET = 15;
 
@@ -212,6 +227,12 @@ public class Constants {
 
 	public static final String CFG_POSTFIX = "SAVE_FILE_POSTFIX";
 
+	/** The in-memory threshold for signed documents (in bytes, 0 = always use a temporary file) */
+	public static final String CFG_OUTPUT_SPILL_THRESHOLD = "OUTPUT_SPILL_THRESHOLD";
+
+	/** The number of pending documents to prepare ahead (0 = disabled) */
+	public static final String CFG_PREPARE_LOOKAHEAD_DEPTH = "PREPARE_LOOKAHEAD_DEPTH";
+
 	/** The main window size (Format: width,height) */
 	public static final String CFG_MAINWINDOW_SIZE = "MAINWINDOW_SIZE";
 
@@ -1,14 +1,21 @@
 package at.asit.pdfover.commons.utils;
 
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 
 import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.DirectColorModel;
 import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 
 import org.eclipse.swt.SWT;
@@ -25,6 +32,8 @@ import org.eclipse.swt.widgets.Shell;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
 import javax.imageio.stream.ImageInputStream;
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
@@ -32,11 +41,13 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 
-import com.drew.imaging.ImageMetadataReader;
-import com.drew.imaging.ImageProcessingException;
+import org.w3c.dom.Node;
+
+import com.drew.lang.ByteArrayReader;
 import com.drew.metadata.Metadata;
 import com.drew.metadata.exif.ExifDirectoryBase;
 import com.drew.metadata.exif.ExifIFD0Directory;
+import com.drew.metadata.exif.ExifReader;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -70,30 +81,76 @@ class EXIFRotation {
 		/* 8 */ new EXIFRotation(3, false)
 	};
 
-	static EXIFRotation For(File file) throws IOException
+	/** JPEG APP1 marker, which holds the EXIF data */
+	private static final int APP1_MARKER = 0xE1;
+
+	/**
+	 * Get the EXIF rotation of the image a JPEG reader is positioned at,
+	 * from the metadata the reader parses anyway
+	 * @param reader JPEG image reader, with its input set
+	 * @param name image name for log messages
+	 * @return the EXIF rotation
+	 */
+	static EXIFRotation For(ImageReader reader, String name)
 	{
 		try
 		{
-			Metadata metadata = ImageMetadataReader.readMetadata(file);
-			if (metadata == null)
+			IIOMetadata imageMetadata = reader.getImageMetadata(0);
+			if (imageMetadata == null)
 				return NONE;
+			Node root = imageMetadata.getAsTree(imageMetadata.getNativeMetadataFormatName());
+			byte[] exif = findAPP1(root);
+			if (exif == null)
+				return NONE;
+
+			Metadata metadata = new Metadata();
+			new ExifReader().extract(new ByteArrayReader(exif), metadata, ExifReader.JPEG_SEGMENT_PREAMBLE.length());
 			ExifIFD0Directory metaDir = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
 			if (metaDir == null)
 				return NONE;
 			Integer orientation = metaDir.getInteger(ExifDirectoryBase.TAG_ORIENTATION);
 			if (orientation == null)
 				return NONE;
-			if (rotationForIndex.length <= orientation)
+			if ((orientation < 0) || (rotationForIndex.length <= orientation))
 			{
-				log.warn("Invalid orientation {} in EXIF metadata for {}", orientation, file.getName());
+				log.warn("Invalid orientation {} in EXIF metadata for {}", orientation, name);
 				return NONE;
 			}
 			return rotationForIndex[orientation];
-		} catch (ImageProcessingException e) {
-			log.error("Failed to read EXIF metadata for {}", file.getName(), e);
+		} catch (IOException | RuntimeException e) {
+			log.error("Failed to read EXIF metadata for {}", name, e);
 			return NONE;
 		}
 	}
+
+	/**
+	 * Find the EXIF APP1 segment in the native JPEG metadata tree
+	 * @param node the tree to search
+	 * @return the segment contents, or null if there is none
+	 */
+	private static byte[] findAPP1(Node node)
+	{
+		if ((node instanceof IIOMetadataNode) && "unknown".equals(node.getNodeName()))
+		{
+			Node tag = node.getAttributes().getNamedItem("MarkerTag");
+			Object data = ((IIOMetadataNode) node).getUserObject();
+			if ((tag != null) && (Integer.parseInt(tag.getNodeValue()) == APP1_MARKER) && (data instanceof byte[]))
+			{
+				byte[] bytes = (byte[]) data;
+				String preamble = ExifReader.JPEG_SEGMENT_PREAMBLE;
+				if ((bytes.length > preamble.length()) &&
+						new String(bytes, 0, preamble.length(), StandardCharsets.ISO_8859_1).equals(preamble))
+					return bytes;
+			}
+		}
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			byte[] found = findAPP1(child);
+			if (found != null)
+				return found;
+		}
+		return null;
+	}
 }
 
 public final class ImageUtil {
@@ -103,6 +160,24 @@ public final class ImageUtil {
 	 * (which the default, for some reason, does not)
 	 */
 	public static final BufferedImage readImageWithEXIFRotation(File input) throws IOException
+	{
+		return readImageWithEXIFRotation(input, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * ImageIO.read, except it honors EXIF rotation metadata and scales
+	 * the image down to fit the given bounds, keeping its aspect ratio
+	 *
+	 * Large images are subsampled while decoding, so the full resolution
+	 * image is never held in memory. Rotation, mirroring and scaling are
+	 * applied in a single draw.
+	 *
+	 * @param input the image file
+	 * @param maxWidth maximum width of the result
+	 * @param maxHeight maximum height of the result
+	 * @return the image, or null if no reader supports the file
+	 */
+	public static final BufferedImage readImageWithEXIFRotation(File input, int maxWidth, int maxHeight) throws IOException
 	{
 		if (input == null)
 			throw new IllegalArgumentException("input == null");
@@ -122,48 +197,64 @@ public final class ImageUtil {
 
 		ImageReader reader = iter.next();
 		boolean isJPEG = reader.getFormatName().equals("JPEG");
-		ImageReadParam param = reader.getDefaultReadParam();
 		reader.setInput(stream, true, false);
 		BufferedImage image;
+		EXIFRotation rotation;
+		int targetWidth;
+		int targetHeight;
 		try {
+			rotation = isJPEG ? EXIFRotation.For(reader, input.getName()) : EXIFRotation.NONE;
+			boolean isSideways = ((rotation.rotationInQuarters % 2) == 1);
+
+			// size after rotation, fitted into the bounds
+			int sourceWidth = reader.getWidth(0);
+			int sourceHeight = reader.getHeight(0);
+			int orientedWidth = isSideways ? sourceHeight : sourceWidth;
+			int orientedHeight = isSideways ? sourceWidth : sourceHeight;
+			double scale = Math.min(1.0, Math.min(
+					(double) maxWidth / orientedWidth, (double) maxHeight / orientedHeight));
+			targetWidth = Math.max(1, (int) (orientedWidth * scale));
+			targetHeight = Math.max(1, (int) (orientedHeight * scale));
+
+			// decode no smaller than the target size
+			ImageReadParam param = reader.getDefaultReadParam();
+			int subsampling = Math.max(1, (int) Math.floor(1.0 / scale));
+			if (subsampling > 1)
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
 			image = reader.read(0, param);
 		} finally {
 			reader.dispose();
 			stream.close();
 		}
 
-		if (!isJPEG)
+		if ((rotation == EXIFRotation.NONE) && (image.getWidth() == targetWidth) && (image.getHeight() == targetHeight))
 			return image;
 
-		EXIFRotation rotation = EXIFRotation.For(input);
-		if (rotation.rotationInQuarters > 0)
-		{
-			boolean isSideways = ((rotation.rotationInQuarters % 2) == 1);
-			int sourceWidth = image.getWidth();
-			int sourceHeight = image.getHeight();
-			int targetWidth = isSideways ? sourceHeight : sourceWidth;
-			int targetHeight = isSideways ? sourceWidth : sourceHeight;
-			
-			BufferedImage result = new BufferedImage(targetWidth, targetHeight, image.getType());
-			Graphics2D g = result.createGraphics();
-			g.translate((targetWidth - sourceWidth)/2, (targetHeight - sourceHeight)/2);
-			g.rotate(rotation.rotationInQuarters * Math.PI / 2, sourceWidth/2, sourceHeight/2);
-			g.drawRenderedImage(image, null);
-			g.dispose();
-			image = result;
-		}
+		boolean isSideways = ((rotation.rotationInQuarters % 2) == 1);
+		// size of the scaled image before rotation
+		int scaledWidth = isSideways ? targetHeight : targetWidth;
+		int scaledHeight = isSideways ? targetWidth : targetHeight;
 
+		// mirror after rotating, rotate after scaling
+		AffineTransform transform = new AffineTransform();
 		if (rotation.shouldMirrorLR)
 		{
-			int width = image.getWidth();
-			int height = image.getHeight();
-			BufferedImage result = new BufferedImage(width, height, image.getType());
-			Graphics2D g = result.createGraphics();
-			g.drawImage(image, width, 0, -width, height, null);
-			g.dispose();
-			image = result;
+			transform.translate(targetWidth, 0);
+			transform.scale(-1, 1);
 		}
-		return image;
+		transform.translate(targetWidth / 2.0, targetHeight / 2.0);
+		transform.quadrantRotate(rotation.rotationInQuarters);
+		transform.translate(-scaledWidth / 2.0, -scaledHeight / 2.0);
+		transform.scale((double) scaledWidth / image.getWidth(), (double) scaledHeight / image.getHeight());
+
+		BufferedImage result = new BufferedImage(targetWidth, targetHeight,
+				image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = result.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g.drawImage(image, transform, null);
+		g.dispose();
+		return result;
 	}
 
 	public static java.awt.Image debugDisplayImage(java.awt.Image image) {
@@ -212,6 +303,113 @@ public final class ImageUtil {
 		if ((bufferedImage.getWidth() <= 0) || (bufferedImage.getHeight() <= 0))
 			return null;
 
+		switch (bufferedImage.getType()) {
+			case BufferedImage.TYPE_INT_RGB:
+				return convertIntRGBToSWT(bufferedImage, false);
+			case BufferedImage.TYPE_INT_ARGB:
+				return convertIntRGBToSWT(bufferedImage, true);
+			case BufferedImage.TYPE_3BYTE_BGR:
+				return convertByteBGRToSWT(bufferedImage, false);
+			case BufferedImage.TYPE_4BYTE_ABGR:
+				return convertByteBGRToSWT(bufferedImage, true);
+			default:
+				return convertGenericToSWT(bufferedImage);
+		}
+	}
+
+	/**
+	 * Convert a TYPE_INT_RGB or TYPE_INT_ARGB image by copying scanlines from its data buffer
+	 * @param bufferedImage the image
+	 * @param hasAlpha whether the image has an alpha channel
+	 * @return SWT Image data
+	 */
+	private static ImageData convertIntRGBToSWT(final BufferedImage bufferedImage, boolean hasAlpha) {
+		WritableRaster raster = bufferedImage.getRaster();
+		if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel) || !(raster.getDataBuffer() instanceof DataBufferInt))
+			return convertGenericToSWT(bufferedImage);
+
+		int width = bufferedImage.getWidth();
+		int height = bufferedImage.getHeight();
+		int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+		DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+		int[] src = buffer.getData();
+		int srcOffset = buffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+
+		// 24 bit, stored most significant byte first: R, G, B
+		ImageData data = new ImageData(width, height, 24, new PaletteData(0xFF0000, 0x00FF00, 0x0000FF));
+		byte[] dst = data.data;
+		byte[] alpha = hasAlpha ? new byte[width * height] : null;
+		for (int y = 0; y < height; ++y) {
+			int s = srcOffset + y * stride;
+			int d = y * data.bytesPerLine;
+			int a = y * width;
+			for (int x = 0; x < width; ++x) {
+				int pixel = src[s++];
+				dst[d++] = (byte) (pixel >> 16);
+				dst[d++] = (byte) (pixel >> 8);
+				dst[d++] = (byte) pixel;
+				if (alpha != null)
+					alpha[a++] = (byte) (pixel >>> 24);
+			}
+		}
+		data.alphaData = alpha;
+		return data;
+	}
+
+	/**
+	 * Convert a TYPE_3BYTE_BGR or TYPE_4BYTE_ABGR image by copying scanlines from its data buffer
+	 * @param bufferedImage the image
+	 * @param hasAlpha whether the image has an alpha channel
+	 * @return SWT Image data
+	 */
+	private static ImageData convertByteBGRToSWT(final BufferedImage bufferedImage, boolean hasAlpha) {
+		WritableRaster raster = bufferedImage.getRaster();
+		if (!(raster.getSampleModel() instanceof ComponentSampleModel) || !(raster.getDataBuffer() instanceof DataBufferByte))
+			return convertGenericToSWT(bufferedImage);
+
+		int width = bufferedImage.getWidth();
+		int height = bufferedImage.getHeight();
+		ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+		int stride = sampleModel.getScanlineStride();
+		int pixelStride = sampleModel.getPixelStride();
+		DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+		byte[] src = buffer.getData();
+		int srcOffset = buffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX() * pixelStride;
+		// bytes are A, B, G, R or B, G, R; the color bytes follow the alpha byte
+		int colorOffset = hasAlpha ? 1 : 0;
+
+		// 24 bit, stored most significant byte first: B, G, R
+		ImageData data = new ImageData(width, height, 24, new PaletteData(0x0000FF, 0x00FF00, 0xFF0000));
+		byte[] dst = data.data;
+		if (!hasAlpha) {
+			for (int y = 0; y < height; ++y)
+				System.arraycopy(src, srcOffset + y * stride, dst, y * data.bytesPerLine, width * 3);
+			return data;
+		}
+
+		byte[] alpha = new byte[width * height];
+		for (int y = 0; y < height; ++y) {
+			int s = srcOffset + y * stride;
+			int d = y * data.bytesPerLine;
+			int a = y * width;
+			for (int x = 0; x < width; ++x) {
+				alpha[a++] = src[s];
+				dst[d++] = src[s + colorOffset];
+				dst[d++] = src[s + colorOffset + 1];
+				dst[d++] = src[s + colorOffset + 2];
+				s += pixelStride;
+			}
+		}
+		data.alphaData = alpha;
+		return data;
+	}
+
+	/**
+	 * Convert an AWT image of any supported color model pixel by pixel
+	 * @param bufferedImage the image
+	 * @return SWT Image data
+	 */
+	public static ImageData convertGenericToSWT(final BufferedImage bufferedImage) {
 		if (bufferedImage.getColorModel() instanceof DirectColorModel) {
 			DirectColorModel colorModel = (DirectColorModel) bufferedImage
 					.getColorModel();
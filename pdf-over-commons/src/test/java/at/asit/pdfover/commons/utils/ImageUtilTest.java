@@ -0,0 +1,74 @@
+package at.asit.pdfover.commons.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.RGB;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class ImageUtilTest {
+
+    private static BufferedImage randomImage(int type, int width, int height) {
+        Random random = new Random(type);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; ++y)
+            for (int x = 0; x < width; ++x)
+                image.setRGB(x, y, random.nextInt());
+        return image;
+    }
+
+    private static void assertSameImage(BufferedImage expected, ImageData actual) {
+        assertEquals(expected.getWidth(), actual.width);
+        assertEquals(expected.getHeight(), actual.height);
+        boolean hasAlpha = expected.getColorModel().hasAlpha();
+        for (int y = 0; y < actual.height; ++y) {
+            for (int x = 0; x < actual.width; ++x) {
+                int argb = expected.getRGB(x, y);
+                RGB rgb = actual.palette.getRGB(actual.getPixel(x, y));
+                assertEquals(new RGB((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF), rgb, "pixel " + x + "," + y);
+                if (hasAlpha)
+                    assertEquals(argb >>> 24, actual.getAlpha(x, y), "alpha " + x + "," + y);
+                else
+                    assertNull(actual.alphaData);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR })
+    public void testFastPathMatchesSource(int type) {
+        BufferedImage image = randomImage(type, 37, 23);
+        assertSameImage(image, ImageUtil.convertToSWT(image));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR })
+    public void testFastPathHandlesSubimages(int type) {
+        /* a subimage shares the parent's buffer with an offset and a wider stride */
+        BufferedImage sub = randomImage(type, 64, 48).getSubimage(5, 7, 31, 19);
+        assertSameImage(sub, ImageUtil.convertToSWT(sub));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR })
+    public void testFastPathMatchesGenericConversion(int type) {
+        BufferedImage image = randomImage(type, 16, 9);
+        ImageData fast = ImageUtil.convertToSWT(image);
+        ImageData generic = ImageUtil.convertGenericToSWT(image);
+        for (int y = 0; y < image.getHeight(); ++y)
+            for (int x = 0; x < image.getWidth(); ++x)
+                assertEquals(generic.palette.getRGB(generic.getPixel(x, y)), fast.palette.getRGB(fast.getPixel(x, y)));
+    }
+
+    @Test
+    public void testNullImage() {
+        assertNull(ImageUtil.convertToSWT(null));
+    }
+}
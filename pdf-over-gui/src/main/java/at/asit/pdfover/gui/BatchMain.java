@@ -0,0 +1,298 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.gui;
+
+//Imports
+import java.io.Console;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FilenameUtils;
+
+import at.asit.pdfover.commons.BKUs;
+import at.asit.pdfover.gui.cliarguments.*;
+import at.asit.pdfover.gui.exceptions.InitializationException;
+import at.asit.pdfover.gui.keystore.KeystoreUtils;
+import at.asit.pdfover.gui.workflow.StateMachine;
+import at.asit.pdfover.gui.workflow.Status;
+import at.asit.pdfover.gui.workflow.config.ConfigurationManager;
+import at.asit.pdfover.gui.workflow.states.PrepareConfigurationState;
+import at.asit.pdfover.gui.workflow.states.PrepareSigningState;
+import at.asit.pdfover.signer.DocumentSource;
+import at.asit.pdfover.signer.PDFFileDocumentSource;
+import at.asit.pdfover.signer.SignResult;
+import at.asit.pdfover.signer.SignaturePosition;
+import at.asit.pdfover.signer.TemporaryFileDocumentSource;
+import at.asit.pdfover.signer.pdfas.PdfAs4SignatureParameter;
+import at.asit.pdfover.signer.pdfas.PdfAs4Signer;
+import at.asit.pdfover.signer.pdfas.PdfAs4SigningState;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Headless entry point for signing many documents with a software keystore
+ *
+ * Bypasses the GUI workflow and drives {@link PdfAs4Signer} directly, using
+ * a fixed number of worker threads. Accepts the same command line arguments
+ * as the GUI (keystore, output folder, emblem, ...), plus <code>-pos</code>
+ * for a fixed signature position and <code>-j</code> for the worker count.
+ */
+@Slf4j
+public class BatchMain {
+
+	private final ConfigurationManager config;
+
+	private final SignaturePosition signaturePosition;
+
+	private final File outputFolder;
+
+	private final String keyStoreFile;
+	private final String keyStoreType;
+	private final String keyStoreAlias;
+	private final String storePass;
+	private final String keyPass;
+
+	private BatchMain(ConfigurationManager config, SignaturePosition signaturePosition,
+			String storePass, String keyPass) {
+		this.config = config;
+		this.signaturePosition = signaturePosition;
+		String outputFolder = config.getDefaultOutputFolder();
+		this.outputFolder = (outputFolder == null || outputFolder.isEmpty()) ? null : new File(outputFolder);
+		this.keyStoreFile = config.getKeyStoreFile();
+		this.keyStoreType = config.getKeyStoreType();
+		this.keyStoreAlias = config.getKeyStoreAlias();
+		this.storePass = storePass;
+		this.keyPass = keyPass;
+	}
+
+	/**
+	 * Signs a single document and saves the result
+	 * @param document the document to sign
+	 * @return the signed file
+	 * @throws Exception
+	 */
+	private File signDocument(File document) throws Exception {
+		PdfAs4SignatureParameter parameter = new PdfAs4SignatureParameter();
+		PrepareSigningState.applyConfiguration(parameter, this.config);
+		parameter.inputDocument = new PDFFileDocumentSource(document);
+		parameter.signatureDevice = BKUs.KS;
+		parameter.signaturePosition = this.signaturePosition;
+
+		PdfAs4SigningState signingState = PdfAs4Signer.prepare(parameter);
+		signingState.setKeystoreSigner(this.keyStoreFile, this.keyStoreAlias, this.storePass, this.keyPass, this.keyStoreType);
+		SignResult result = PdfAs4Signer.sign(signingState);
+
+		File targetFolder = (this.outputFolder != null) ? this.outputFolder : document.getAbsoluteFile().getParentFile();
+		File target = new File(targetFolder, getSignedFileName(document.getName()));
+		DocumentSource signed = result.getSignedDocument();
+		if (signed instanceof TemporaryFileDocumentSource) {
+			((TemporaryFileDocumentSource) signed).moveTo(target);
+		} else {
+			try (FileOutputStream outstream = new FileOutputStream(target)) {
+				signed.transferTo(outstream.getChannel());
+			}
+		}
+		return target;
+	}
+
+	private String getSignedFileName(String name) {
+		String extension = FilenameUtils.getExtension(name);
+		name = FilenameUtils.removeExtension(name);
+		return name + this.config.getSaveFilePostFix() + FilenameUtils.EXTENSION_SEPARATOR + extension;
+	}
+
+	/**
+	 * Signs all documents using the given number of worker threads
+	 * @param documents the documents to sign
+	 * @param workers the number of worker threads
+	 * @return the number of documents that failed
+	 * @throws InterruptedException
+	 */
+	private int signAll(List<File> documents, int workers) throws InterruptedException {
+		if (this.outputFolder != null && !this.outputFolder.isDirectory())
+			this.outputFolder.mkdirs();
+
+		/* only successful signatures are timed; failures stay at -1 */
+		long[] latencies = new long[documents.size()];
+		Arrays.fill(latencies, -1);
+		AtomicInteger failed = new AtomicInteger();
+
+		log.info("Signing {} documents using {} workers", documents.size(), workers);
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		long start = System.nanoTime();
+		try {
+			List<Future<?>> futures = new ArrayList<>(documents.size());
+			for (int i = 0; i < documents.size(); ++i) {
+				final int index = i;
+				final File document = documents.get(i);
+				futures.add(executor.submit(() -> {
+					long begin = System.nanoTime();
+					try {
+						File target = signDocument(document);
+						latencies[index] = System.nanoTime() - begin;
+						log.debug("Signed {} -> {}", document, target);
+					} catch (Exception e) {
+						log.error("Failed to sign " + document, e);
+						System.err.println("FAILED " + document + ": " + e.getMessage());
+						failed.incrementAndGet();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					log.error("Batch worker failed", e);
+				}
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		long[] succeeded = Arrays.stream(latencies).filter(l -> l >= 0).sorted().toArray();
+		int signed = succeeded.length;
+		String report = String.format((Locale) null,
+				"Signed %d of %d documents in %.3f s (%.2f docs/s), %d failed",
+				signed, documents.size(), elapsed / 1e9, signed / (elapsed / 1e9), failed.get());
+		if (signed > 0)
+			report += String.format((Locale) null,
+					", latency p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+					percentile(succeeded, 50) / 1e6, percentile(succeeded, 99) / 1e6,
+					succeeded[signed - 1] / 1e6);
+		log.info(report);
+		System.out.println(report);
+
+		return failed.get();
+	}
+
+	/**
+	 * @param sorted sorted values
+	 * @param p the percentile (0-100)
+	 * @return the nearest-rank percentile of the values
+	 */
+	private static long percentile(long[] sorted, int p) {
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+
+	private static String readPassword(String existing, String prompt) throws InitializationException {
+		if (existing != null)
+			return existing;
+		Console console = System.console();
+		if (console == null)
+			throw new InitializationException(prompt + " not given and no console to ask for it", null);
+		char[] password = console.readPassword("%s: ", prompt);
+		if (password == null)
+			throw new InitializationException(prompt + " not given", null);
+		return new String(password);
+	}
+
+	private static int run(String[] args) throws Exception {
+		StateMachine stateMachine = Main.setup(args);
+		ConfigurationManager config = stateMachine.configProvider;
+		Status status = stateMachine.status;
+
+		PrepareConfigurationState.ensureConfigurationDirectory();
+
+		// config file location has to be known before loading the config
+		ArgumentHandler configFileHandler = new ArgumentHandler(stateMachine);
+		configFileHandler.addCLIArgument(ConfigFileArgument.class);
+		configFileHandler.handleArguments(args);
+
+		config.loadFromDisk();
+
+		ArgumentHandler handler = new ArgumentHandler(stateMachine);
+		handler.addCLIArgument(HelpArgument.class);
+		handler.addCLIArgument(InputDocumentArgument.class);
+		handler.addCLIArgument(OutputFolderArgument.class);
+		handler.addCLIArgument(KeystoreFileArgument.class);
+		handler.addCLIArgument(KeystoreTypeArgument.class);
+		handler.addCLIArgument(KeystoreStorePassArgument.class);
+		handler.addCLIArgument(KeystoreAliasArgument.class);
+		handler.addCLIArgument(KeystoreKeyPassArgument.class);
+		handler.addCLIArgument(EmblemArgument.class);
+		handler.addCLIArgument(AutomaticPositioningArgument.class);
+		handler.addCLIArgument(SignaturePositionArgument.class);
+		handler.addCLIArgument(BatchWorkersArgument.class);
+		// adding config file argument to this handler so it appears in help
+		handler.addCLIArgument(ConfigFileArgument.class);
+		handler.addCLIArgument(InvisibleProfile.class);
+		handler.handleArguments(args);
+
+		if (handler.doesRequireExit())
+			return 0;
+
+		List<File> documents = new ArrayList<>();
+		if (status.document != null)
+			documents.add(status.document);
+		documents.addAll(status.pendingDocuments);
+		if (documents.isEmpty())
+			throw new InitializationException("No documents to sign", null);
+
+		String keyStoreFile = config.getKeyStoreFile();
+		if ((keyStoreFile == null) || keyStoreFile.isEmpty())
+			throw new InitializationException("No keystore given (-ks)", null);
+		File keyStore = new File(keyStoreFile);
+		if (!keyStore.isFile())
+			throw new InitializationException("Keystore not found: " + keyStore, null);
+
+		// unlock the key once up front, so wrong passwords don't fail every document
+		String storePass = readPassword(config.getKeyStoreStorePass(), "Keystore password");
+		String keyPass = readPassword(config.getKeyStoreKeyPass(), "Key password");
+		KeyStore ks = KeystoreUtils.tryLoadKeystore(keyStore, config.getKeyStoreType(), storePass);
+		if ((config.getKeyStoreAlias() == null) || config.getKeyStoreAlias().isEmpty())
+			throw new InitializationException("No key alias given (-ksalias)", null);
+		if (ks.getKey(config.getKeyStoreAlias(), keyPass.toCharArray()) == null)
+			throw new InitializationException("Key alias not found: " + config.getKeyStoreAlias(), null);
+
+		// a fixed position given by -pos takes precedence, otherwise there is no one to ask
+		SignaturePosition position = (status.signaturePosition != null) ? status.signaturePosition : new SignaturePosition();
+
+		int workers = config.getBatchWorkers();
+		if (workers < 1)
+			workers = Runtime.getRuntime().availableProcessors();
+
+		BatchMain batch = new BatchMain(config, position, storePass, keyPass);
+		return (batch.signAll(documents, workers) == 0) ? 0 : 1;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int exitCode;
+		try {
+			exitCode = run(args);
+		} catch (Throwable e) {
+			log.error("Batch signing failed", e);
+			System.err.println("Error: " + e.getMessage());
+			exitCode = 2;
+		}
+		System.exit(exitCode);
+	}
+}
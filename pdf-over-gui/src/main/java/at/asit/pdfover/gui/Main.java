@@ -22,6 +22,7 @@ import java.io.IOException;
 import javax.swing.JOptionPane;
 
 import at.asit.pdfover.commons.Constants;
+import at.asit.pdfover.gui.utils.HttpClientUtils;
 import at.asit.pdfover.gui.workflow.StateMachine;
 
 import iaik.security.provider.IAIK;
@@ -75,6 +76,8 @@ public class Main {
 					null, JOptionPane.ERROR_MESSAGE);
 		}
 
+		HttpClientUtils.closeSharedClient();
+
 		// Workaround for remaining AWT-Shutdown thread on OSX
 		System.exit(0);
 	}
@@ -17,22 +17,34 @@ package at.asit.pdfover.gui.bku;
 
 // Imports
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
-
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpException;
-import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.methods.PostMethod;
-import org.apache.commons.httpclient.methods.multipart.FilePart;
-import org.apache.commons.httpclient.methods.multipart.MultipartRequestEntity;
-import org.apache.commons.httpclient.methods.multipart.Part;
-import org.apache.commons.httpclient.methods.multipart.StringPart;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.hc.client5.http.HttpResponseException;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
+import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
 
 import at.asit.pdfover.commons.Constants;
-import at.asit.pdfover.gui.utils.FileUploadSource;
+import at.asit.pdfover.gui.utils.DocumentSourceBody;
+import at.asit.pdfover.gui.utils.HttpClientUtils;
 import at.asit.pdfover.signer.BkuSlConnector;
+import at.asit.pdfover.signer.DocumentSource;
 import at.asit.pdfover.signer.SignatureException;
 import at.asit.pdfover.signer.pdfas.PdfAs4SLRequest;
+import at.gv.egiz.sl.util.SLMarschaller;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -74,45 +86,101 @@ public class LocalBKUConnector implements BkuSlConnector {
 	 */
 	public final static String BKU_RESPONSE_HEADER_SIGNATURE_LAYOUT = "SignatureLayout";
 
-	/* (non-Javadoc)
-	 * @see at.asit.pdfover.signator.BkuSlConnector#handleSLRequest(java.lang.String)
-	 */
-	@Override
-	public String handleSLRequest(PdfAs4SLRequest request) throws SignatureException {
-		try {
-			HttpClient client = BKUHelper.getHttpClient();
-			PostMethod method = new PostMethod(Constants.LOCAL_BKU_URL);
-
-			String sl_request = request.xmlRequest;
-			if (request.signatureData == null) {
-				method.addParameter("XMLRequest", sl_request);
-			} else {
-				StringPart xmlpart = new StringPart(
-						"XMLRequest", sl_request, "UTF-8");
+	private final URI localBKUURL;
 
-				FilePart filepart = new FilePart("fileupload", new FileUploadSource(request.signatureData));
+	/**
+	 * Constructor
+	 */
+	public LocalBKUConnector() {
+		this(getDefaultLocalBKUURL());
+	}
 
-				Part[] parts = { xmlpart, filepart };
+	/**
+	 * @param localBKUURL the URL the security layer requests are posted to
+	 */
+	public LocalBKUConnector(URI localBKUURL) {
+		this.localBKUURL = localBKUURL;
+	}
 
-				method.setRequestEntity(new MultipartRequestEntity(parts, method
-						.getParams()));
-			}
-			log.trace("SL REQUEST: " + sl_request);
+	/**
+	 * @return the Local BKU URL, unless overridden by {@link Constants#LOCAL_BKU_URL_PROPERTY}
+	 */
+	public static URI getDefaultLocalBKUURL() {
+		String override = System.getProperty(Constants.LOCAL_BKU_URL_PROPERTY);
+		if ((override == null) || override.isEmpty())
+			return URI.create(Constants.LOCAL_BKU_URL);
+		return URI.create(override);
+	}
 
-			int returnCode = client.executeMethod(method);
+	/**
+	 * Build the HTTP request carrying a security layer request
+	 *
+	 * The document, if any, is streamed as a file upload.
+	 * @param localBKUURL the URL to post to
+	 * @param xmlRequest the security layer request
+	 * @param signatureData the document to upload, or null
+	 * @return the HTTP request
+	 */
+	public static ClassicHttpRequest buildRequest(URI localBKUURL, String xmlRequest, DocumentSource signatureData) {
+		HttpPost post = new HttpPost(localBKUURL);
+		if (signatureData == null) {
+			post.setEntity(new UrlEncodedFormEntity(List.of(new BasicNameValuePair("XMLRequest", xmlRequest)), StandardCharsets.UTF_8));
+		} else {
+			post.setEntity(MultipartEntityBuilder.create()
+					.addTextBody("XMLRequest", xmlRequest, ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8))
+					.addPart("fileupload", new DocumentSourceBody(signatureData, ContentType.APPLICATION_OCTET_STREAM, "sign.pdf"))
+					.build());
+		}
+		return post;
+	}
 
-			if (returnCode != HttpStatus.SC_OK) {
-				throw new HttpException(
-						method.getResponseBodyAsString());
-			}
+	private interface ResponseReader<T, E extends Exception> {
+		T read(HttpEntity response) throws IOException, E;
+	}
 
-			return method.getResponseBodyAsString();
-		} catch (HttpException e) {
-			log.error("LocalBKUConnector: ", e);
-			throw new SignatureException(e);
+	/**
+	 * Send a request on the pooled local client, reading the response straight from the connection
+	 */
+	private <T, E extends Exception> T send(PdfAs4SLRequest request, ResponseReader<T, E> reader) throws SignatureException, E {
+		log.trace("SL REQUEST: " + request.xmlRequest);
+		ClassicHttpRequest httpRequest = buildRequest(this.localBKUURL, request.xmlRequest, request.signatureData);
+		try (ClassicHttpResponse response = HttpClientUtils.getLocalClient().executeOpen(null, httpRequest, null)) {
+			HttpEntity entity = response.getEntity();
+			if (response.getCode() != HttpStatus.SC_OK)
+				throw new HttpResponseException(response.getCode(),
+						(entity != null) ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : response.getReasonPhrase());
+			if (entity == null)
+				throw new IOException("Did not get a HTTP body (entity == null)");
+
+			T result = reader.read(entity);
+			/* drain whatever the reader left, so the connection goes back to the pool */
+			EntityUtils.consume(entity);
+			return result;
 		} catch (IOException e) {
 			log.error("LocalBKUConnector: ", e);
 			throw new SignatureException(e);
 		}
 	}
+
+	/* (non-Javadoc)
+	 * @see at.asit.pdfover.signer.BkuSlConnector#handleSLRequest(at.asit.pdfover.signer.pdfas.PdfAs4SLRequest)
+	 */
+	@Override
+	public String handleSLRequest(PdfAs4SLRequest request) throws SignatureException {
+		/* decoded with the charset of the Content-Type, if the BKU sends one */
+		return send(request, entity -> EntityUtils.toString(entity, StandardCharsets.UTF_8));
+	}
+
+	/* (non-Javadoc)
+	 * @see at.asit.pdfover.signer.BkuSlConnector#handleSLRequestUnmarshalled(at.asit.pdfover.signer.pdfas.PdfAs4SLRequest)
+	 */
+	@Override
+	public Object handleSLRequestUnmarshalled(PdfAs4SLRequest request) throws SignatureException, JAXBException {
+		/* the parser picks the encoding from the XML declaration */
+		return send(request, entity -> {
+			try (InputStream in = entity.getContent()) {
+				return SLMarschaller.unmarshal(in);
+			}
+		});
+	}
 }
@@ -8,17 +8,26 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.cookie.CookieStore;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ConnectionClosedException;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
@@ -37,12 +46,16 @@ import org.jsoup.nodes.Element;
 import at.asit.pdfover.commons.Constants;
 import at.asit.pdfover.commons.Messages;
 import at.asit.pdfover.gui.bku.mobile.ATrustParser;
+import at.asit.pdfover.gui.bku.mobile.MobileBKUSession;
+import at.asit.pdfover.gui.utils.DocumentSourceBody;
 import at.asit.pdfover.gui.utils.HttpClientUtils;
 import at.asit.pdfover.gui.workflow.states.MobileBKUState;
 import at.asit.pdfover.gui.workflow.states.MobileBKUState.UsernameAndPassword;
 import at.asit.pdfover.signer.BkuSlConnector;
+import at.asit.pdfover.signer.SessionClosedException;
 import at.asit.pdfover.signer.SignatureException;
 import at.asit.pdfover.signer.UserCancelledException;
+import at.asit.pdfover.signer.pdfas.PdfAs4CertificateCache;
 import at.asit.pdfover.signer.pdfas.PdfAs4SLRequest;
 import at.asit.webauthnclient.WebAuthN;
 import lombok.NonNull;
@@ -51,10 +64,43 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class MobileBKUConnector implements BkuSlConnector {    
     private final @NonNull MobileBKUState state;
+    private final @NonNull URI mobileBKUURL;
+    private final @NonNull MobileBKUSession session;
     public MobileBKUConnector(@NonNull MobileBKUState state) {
+        this(state, new MobileBKUSession());
+    }
+
+    /**
+     * @param state the state handling user interaction
+     * @param session the A-Trust session to sign in, shared by the documents of a batch
+     */
+    public MobileBKUConnector(@NonNull MobileBKUState state, @NonNull MobileBKUSession session) {
+        this(state, getDefaultMobileBKUURL(), session);
+    }
+
+    /**
+     * @param state the state handling user interaction
+     * @param mobileBKUURL the URL the security layer request is posted to
+     */
+    public MobileBKUConnector(@NonNull MobileBKUState state, @NonNull URI mobileBKUURL) {
+        this(state, mobileBKUURL, new MobileBKUSession());
+    }
+
+    /**
+     * @param state the state handling user interaction
+     * @param mobileBKUURL the URL the security layer request is posted to
+     * @param session the A-Trust session to sign in, shared by the documents of a batch
+     */
+    public MobileBKUConnector(@NonNull MobileBKUState state, @NonNull URI mobileBKUURL, @NonNull MobileBKUSession session) {
         this.state = state;
+        this.mobileBKUURL = mobileBKUURL;
+        this.session = session;
+        this.credentials = session.credentials;
+        this.cookieStore = session.getCookieStore();
+        this.httpContext = createHttpContext(this.cookieStore, false);
         this.wantsFido2Default = WebAuthN.isAvailable() && state.getConfig().getFido2ByDefault();
-        state.storeRememberedCredentialsTo(this.credentials);
+        if ((this.credentials.username == null) || (this.credentials.password == null))
+            state.storeRememberedCredentialsTo(this.credentials);
     }
 
     private static class UserDisplayedError extends Exception {
@@ -63,7 +109,44 @@ public class MobileBKUConnector implements BkuSlConnector {
         private UserDisplayedError(@NonNull String s) { this.msg = s; }
     }
 
-    public @NonNull UsernameAndPassword credentials = new UsernameAndPassword();
+    public final @NonNull UsernameAndPassword credentials;
+
+    /* the client is shared, cookies belong to this session only; redirects are followed manually */
+    private final @NonNull CookieStore cookieStore;
+    private final @NonNull HttpClientContext httpContext;
+
+    private static @NonNull HttpClientContext createHttpContext(@NonNull CookieStore cookieStore, boolean followRedirects) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(cookieStore);
+        context.setRequestConfig(RequestConfig.custom().setRedirectsEnabled(followRedirects).build());
+        return context;
+    }
+
+    /**
+     * @return the Mobile BKU URL, unless overridden by {@link Constants#MOBILE_BKU_URL_PROPERTY}
+     */
+    private static @NonNull URI getDefaultMobileBKUURL() {
+        String override = System.getProperty(Constants.MOBILE_BKU_URL_PROPERTY);
+        if ((override == null) || override.isEmpty())
+            return Constants.MOBILE_BKU_URL;
+        log.info("Using Mobile BKU URL {}", override);
+        return URI.create(override);
+    }
+
+    @Override
+    public Object getSessionIdentity() {
+        return this.session.getIdentity();
+    }
+
+    /**
+     * Open a connection to the Mobile BKU in the background, ahead of the first request
+     *
+     * Call this as soon as mobile signing is likely, so that the initial
+     * request of {@link #handleSLRequest} does not wait for connection setup.
+     */
+    public static void warmUp() {
+        HttpClientUtils.warmUp(getDefaultMobileBKUURL());
+    }
 
     /**
      * This method takes the SLRequest from PDF-AS, and blocks until it has obtained a response
@@ -71,17 +154,38 @@ public class MobileBKUConnector implements BkuSlConnector {
     @Override
 	public String handleSLRequest(PdfAs4SLRequest slRequest) throws SignatureException, UserCancelledException {
         log.debug("Got security layer request: (has file part: {})\n{}", (slRequest.signatureData != null), slRequest.xmlRequest);
-        try (final CloseableHttpClient httpClient = HttpClientUtils.builderWithSettings().disableRedirectHandling().build()) {
-            ClassicHttpRequest currentRequest = buildInitialRequest(slRequest);
+        try {
+            boolean resumedSession = this.session.isEstablished();
+            if (resumedSession)
+                log.debug("Trying to sign within the existing A-Trust session");
+            ClassicHttpRequest currentRequest = buildInitialRequest(this.mobileBKUURL, slRequest);
             ATrustParser.Result response;
-            while ((response = sendHTTPRequest(httpClient, currentRequest)).slResponse == null)
+            while ((response = sendHTTPRequest(currentRequest)).slResponse == null) {
+                if (resumedSession && (response.html.errorBlock != null) && response.html.errorBlock.isSessionClosed) {
+                    /* whoever logs in next may be someone else, so nothing read in the old session may be used */
+                    PdfAs4CertificateCache.invalidate(this.session.getIdentity());
+                    this.session.reset();
+                    /* the signature request embeds the old session's certificate already; PDF-AS starts over with a new one */
+                    if (slRequest.signatureData != null) {
+                        log.info("A-Trust session was closed while signing, starting the signature over");
+                        throw new SessionClosedException("A-Trust session was closed while signing");
+                    }
+                    /* the session expired since the last document; this is not the user's problem */
+                    log.info("A-Trust session was closed, starting over with a new one");
+                    resumedSession = false;
+                    currentRequest = buildInitialRequest(this.mobileBKUURL, slRequest);
+                    continue;
+                }
                 currentRequest = presentResponseToUserAndReturnNextRequest(response.html);
+            }
+            this.session.signatureCompleted();
             log.debug("Returning security layer response:\n{}", response.slResponse);
+            log.debug("HTTP connections: {}", HttpClientUtils.getStatistics());
             return response.slResponse;
         } catch (UserDisplayedError e) {
             state.showUnrecoverableError(e.getMessage());
             throw new IllegalStateException("unreachable", e); /* showUnrecoverableError always throws */
-        } catch (UserCancelledException e) {
+        } catch (UserCancelledException | SessionClosedException e) {
             throw e;
         } catch (Exception e) {
             throw new SignatureException(e);
@@ -99,7 +203,7 @@ public class MobileBKUConnector implements BkuSlConnector {
      * @throws URISyntaxException
      * @throws InterruptedException
      */
-    private @NonNull ATrustParser.Result sendHTTPRequest(CloseableHttpClient httpClient, ClassicHttpRequest request) throws IOException, ProtocolException, URISyntaxException, UserDisplayedError {
+    private @NonNull ATrustParser.Result sendHTTPRequest(ClassicHttpRequest request) throws IOException, ProtocolException, URISyntaxException, UserDisplayedError {
         while (loopHTTPRequestCounter < 50) {
 	        long now = System.nanoTime();
 	        if ((lastHTTPRequestTime != null) && ((now - lastHTTPRequestTime) < 2e+9)) { /* less than 2s since last request */
@@ -111,7 +215,7 @@ public class MobileBKUConnector implements BkuSlConnector {
 	
 	        log.debug("Sending {} request to '{}'...", request.getMethod(), request.getUri().toString());
 	        
-	        try (final CloseableHttpResponse response = httpClient.execute(request)) {
+	        try (final CloseableHttpResponse response = HttpClientUtils.getSharedClient().execute(request, this.httpContext)) {
 	            int httpStatus = response.getCode();
 	            if ((httpStatus == HttpStatus.SC_MOVED_PERMANENTLY) || (httpStatus == HttpStatus.SC_MOVED_TEMPORARILY)) {
 	                Header redirectPath = response.getHeader("location");
@@ -197,11 +301,11 @@ public class MobileBKUConnector implements BkuSlConnector {
      * Builds the initial request to A-Trust based on the specified SL request
      */
     private static final ContentType TEXT_UTF8 = ContentType.TEXT_PLAIN.withCharset("UTF-8");
-    private static @NonNull ClassicHttpRequest buildInitialRequest(PdfAs4SLRequest slRequest) {
-        HttpPost post = new HttpPost(Constants.MOBILE_BKU_URL);
+    private static @NonNull ClassicHttpRequest buildInitialRequest(@NonNull URI mobileBKUURL, PdfAs4SLRequest slRequest) {
+        HttpPost post = new HttpPost(mobileBKUURL);
         if (slRequest.signatureData != null) {
             post.setEntity(MultipartEntityBuilder.create()
-                .addBinaryBody("fileupload", slRequest.signatureData.getByteArray(), ContentType.APPLICATION_PDF, "sign.pdf")
+                .addPart("fileupload", new DocumentSourceBody(slRequest.signatureData, ContentType.APPLICATION_PDF, "sign.pdf"))
                 .addTextBody("XMLRequest", slRequest.xmlRequest, TEXT_UTF8)
                 .build());
         } else {
@@ -242,85 +346,152 @@ public class MobileBKUConnector implements BkuSlConnector {
         return post;
     }
 
+    /**
+     * Long polls A-Trust on the shared asynchronous client, and runs a
+     * callback when the page is probably worth reloading
+     *
+     * No thread waits for the responses. Retries are scheduled rather than
+     * slept, and closing cancels the outstanding request (discarding its
+     * connection) or the scheduled retry right away.
+     */
     @Slf4j
-    private static class LongPollThread extends Thread implements AutoCloseable {
-        
-        private final CloseableHttpClient httpClient = HttpClientUtils.builderWithSettings().build();
-        private final HttpGet request;
+    private static class LongPoll implements AutoCloseable {
+        /* a-trust timeout is 5 minutes */
+        private static final long ATRUST_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(5);
+        /* so we don't send a second request that immediately gets aborted */
+        private static final long SIGNAL_DELAY_MS = 500;
+        /* A-Trust's own page waits 10 s after an error */
+        private static final long MIN_ERROR_DELAY_MS = 1250;
+        private static final long MAX_ERROR_DELAY_MS = 10000;
+
+        private final URI uri;
+        private final HttpClientContext httpContext;
         private final Runnable signal;
+        private final long timeout = System.nanoTime() + ATRUST_TIMEOUT_NANOS;
+
+        /* guarded by this */
         private boolean done = false;
+        private Future<?> pending = null;
+        private long errorDelay = MIN_ERROR_DELAY_MS;
 
-        @Override
-        public void run() {
-            long timeout = System.nanoTime() + (300l * 1000l * 1000l * 1000l); /* a-trust timeout is 5 minutes */
-            while (!done) {
-                log.debug("LongPollThread Making request to {}...", request.getRequestUri());
-                try (final CloseableHttpResponse response = httpClient.execute(request)) {
-                    String jsonResponseStr = EntityUtils.toString(response.getEntity());
-                    JSONObject jsonResponse = null;
-                    try {
-                        jsonResponse = new JSONObject(jsonResponseStr);
-                        log.debug("Got long poll response:\n{}", jsonResponse.toString(2));
-                    } catch (JSONException e) {
-                        log.warn("Failed to parse long poll response:\n\"{}\"", jsonResponseStr);
-                        throw e;
+        public LongPoll(URI uri, CookieStore cookieStore, Runnable signal) {
+            log.debug("LongPoll setup for '{}'", uri);
+            this.uri = uri;
+            this.httpContext = createHttpContext(cookieStore, true);
+            this.signal = signal;
+        }
+
+        public void start() {
+            poll();
+        }
+
+        private synchronized boolean isDone() {
+            return this.done;
+        }
+
+        private void poll() {
+            if (isDone())
+                return;
+            log.debug("LongPoll making request to {}...", this.uri);
+            Future<SimpleHttpResponse> request = HttpClientUtils.getSharedAsyncClient().execute(
+                SimpleRequestBuilder.get(this.uri).build(), this.httpContext, new FutureCallback<SimpleHttpResponse>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        handleResponse(response);
                     }
-                    if (jsonResponse.getBoolean("Fin")) {
-                        signalProbablyDone();
-                    } else if (jsonResponse.getBoolean("Wait")) {
-                        continue;
-                    } else if (jsonResponse.getBoolean("Error")) {
-                        signalProbablyDone(); /* will trigger reload and find error; this is the same thing a-trust does */
-                    } else {
-                        log.warn("Unknown long poll response:\n{}", jsonResponse.toString(2));
-                        break;
+
+                    @Override
+                    public void failed(Exception e) {
+                        handleFailure(e);
                     }
-                } catch (NoHttpResponseException e) {
-                    if (timeout <= System.nanoTime()) {
-                        log.debug("LongPollThread no response, expecting A-Trust timeout, triggering reload...");
-                        signalProbablyDone(); /* reload main page to find the timeout error */
+
+                    @Override
+                    public void cancelled() {
+                        log.debug("LongPoll request cancelled");
                     }
-                    continue; /* httpclient timeout */
-                } catch (Exception e) {
-                    if (done) break;
-                    log.warn("QR code long polling exception", e);
-
-                    /* A-Trust does excepting handling this way, so we copy it (they might mask errors, so we should too...) */
-                    try { Thread.sleep(10000); } catch (InterruptedException e2) {}
-                    signalProbablyDone();
-                }
+                });
+            synchronized (this) {
+                if (this.done)
+                    request.cancel(true);
+                else if (!request.isDone()) /* otherwise, the callback has already moved on */
+                    this.pending = request;
             }
-            log.debug("LongPollThread goodbye");
         }
 
-        private void signalProbablyDone() {
-            this.signal.run();
-            /* so we don't send a second request that immediately gets aborted */
-            try { Thread.sleep(500); } catch (InterruptedException e2) {}
+        private synchronized void schedule(Runnable task, long delayMs) {
+            if (this.done)
+                return;
+            this.pending = CompletableFuture.runAsync(task, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
         }
 
-        public LongPollThread(URI uri, Runnable signal) {
-            log.debug("LongPollThread setup for '{}'", uri);
-            this.request = new HttpGet(uri);
-            this.signal = signal;
-        }
+        private void handleResponse(SimpleHttpResponse response) {
+            String jsonResponseStr = response.getBodyText();
+            JSONObject jsonResponse = null;
+            boolean fin, wait, error;
+            try {
+                jsonResponse = new JSONObject((jsonResponseStr != null) ? jsonResponseStr : "");
+                log.debug("Got long poll response:\n{}", jsonResponse.toString(2));
+                fin = jsonResponse.getBoolean("Fin");
+                wait = !fin && jsonResponse.getBoolean("Wait");
+                error = !fin && !wait && jsonResponse.getBoolean("Error");
+            } catch (JSONException e) {
+                log.warn("Failed to parse long poll response:\n\"{}\"", jsonResponseStr);
+                handleFailure(e);
+                return;
+            }
+            synchronized (this) {
+                this.errorDelay = MIN_ERROR_DELAY_MS;
+            }
 
-        @Override
-        public void close() {
-            done = true;
+            if (fin) {
+                signalProbablyDone();
+            } else if (wait) {
+                poll();
+            } else if (error) {
+                signalProbablyDone(); /* will trigger reload and find error; this is the same thing a-trust does */
+            } else {
+                log.warn("Unknown long poll response:\n{}", jsonResponse.toString(2));
+            }
+        }
 
-            if (this.request != null)
-                this.request.abort();
+        private void handleFailure(Exception e) {
+            if (isDone())
+                return;
+            if ((e instanceof NoHttpResponseException) || (e instanceof ConnectionClosedException)) {
+                if (this.timeout <= System.nanoTime()) {
+                    log.debug("LongPoll no response, expecting A-Trust timeout, triggering reload...");
+                    signalProbablyDone(); /* reload main page to find the timeout error */
+                } else {
+                    poll(); /* httpclient timeout */
+                }
+                return;
+            }
+            log.warn("QR code long polling exception", e);
 
-            if (this.isAlive()) {
-                this.interrupt();
-                try { this.join(1000); } catch (InterruptedException e) {}
+            /* A-Trust does excepting handling this way, so we copy it (they might mask errors, so we should too...) */
+            long delay;
+            synchronized (this) {
+                delay = this.errorDelay;
+                this.errorDelay = Math.min(2 * delay, MAX_ERROR_DELAY_MS);
             }
-            
-            if (this.httpClient != null)
-                try { this.httpClient.close(); } catch (IOException e) { log.warn("Auto-close of long-poll HTTP client threw exception", e); }
+            schedule(this::signalProbablyDone, delay);
+        }
+
+        private void signalProbablyDone() {
+            if (isDone())
+                return;
+            this.signal.run();
+            schedule(this::poll, SIGNAL_DELAY_MS);
+        }
+
+        @Override
+        public synchronized void close() {
+            this.done = true;
+            if (this.pending != null)
+                this.pending.cancel(true);
+            this.pending = null;
+            log.debug("LongPoll goodbye");
         }
-        
     }
 
     private boolean wantsFido2Default;
@@ -386,9 +557,9 @@ public class MobileBKUConnector implements BkuSlConnector {
             return new HttpGet(html.htmlDocument.baseUri());
         }
         if (html.qrCodeBlock != null) {
-            try (LongPollThread longPollThread = new LongPollThread(html.qrCodeBlock.pollingURI, () -> { this.state.signalQRScanned(); })) {
+            try (LongPoll longPoll = new LongPoll(html.qrCodeBlock.pollingURI, this.cookieStore, () -> { this.state.signalQRScanned(); })) {
                 this.state.showQRCode(html.qrCodeBlock.referenceValue, html.qrCodeBlock.qrCodeURI, html.signatureDataLink, html.smsTanLink != null, html.fido2Link != null, html.qrCodeBlock.errorMessage);
-                longPollThread.start();
+                longPoll.start();
                 var result = this.state.waitForQRCodeResult();
                 switch (result) {
                     case UPDATE: break;
@@ -399,9 +570,9 @@ public class MobileBKUConnector implements BkuSlConnector {
             }
         }
         if (html.waitingForAppBlock != null) {
-            try (LongPollThread longPollThread = new LongPollThread(html.waitingForAppBlock.pollingURI, () -> { this.state.signalAppOpened(); })) {
+            try (LongPoll longPoll = new LongPoll(html.waitingForAppBlock.pollingURI, this.cookieStore, () -> { this.state.signalAppOpened(); })) {
                 this.state.showWaitingForAppOpen(html.waitingForAppBlock.referenceValue, html.signatureDataLink, html.smsTanLink != null, html.fido2Link != null);
-                longPollThread.start();
+                longPoll.start();
                 var result = this.state.waitForAppOpen();
                 switch (result) {
                     case UPDATE: break;
@@ -412,9 +583,9 @@ public class MobileBKUConnector implements BkuSlConnector {
             }
         }
         if (html.waitingForBiometryBlock != null) {
-            try (LongPollThread longPollThread = new LongPollThread(html.waitingForBiometryBlock.pollingURI, () -> { this.state.signalAppBiometryDone(); })) {
+            try (LongPoll longPoll = new LongPoll(html.waitingForBiometryBlock.pollingURI, this.cookieStore, () -> { this.state.signalAppBiometryDone(); })) {
                 this.state.showWaitingForAppBiometry(html.waitingForBiometryBlock.referenceValue, html.signatureDataLink, html.smsTanLink != null, html.fido2Link != null);
-                longPollThread.start();
+                longPoll.start();
                 var result = this.state.waitForAppBiometry();
                 switch (result) {
                     case UPDATE: break;
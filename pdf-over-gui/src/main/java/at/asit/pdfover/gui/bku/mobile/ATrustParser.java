@@ -95,6 +95,8 @@ public class ATrustParser {
     public static class ErrorBlock extends TopLevelFormBlock {
         public final boolean isRecoverable;
         public final boolean requiresResponse;
+        /** the A-Trust session has ended; starting over with a new one is the only way on */
+        public final boolean isSessionClosed;
         public final @NonNull String errorText;
 
         private ErrorBlock(@NonNull org.jsoup.nodes.Document htmlDocument, @NonNull Map<String, String> formOptions) throws ComponentParseFailed {
@@ -105,9 +107,10 @@ public class ATrustParser {
                 String aspxFile = documentPath.substring(documentPath.lastIndexOf('/'));
 
                 // gods this is such a hack, why can't they have a proper error element or something
+                this.isSessionClosed = aspxFile.equals("/SessionClosed.aspx");
                 if (!(
                     (aspxFile.startsWith("/error") && aspxFile.endsWith(".aspx")) ||
-                    (aspxFile.equals("/SessionClosed.aspx"))
+                    this.isSessionClosed
                 ))
                     throw new ComponentParseFailed();
             } catch (URISyntaxException ex) {
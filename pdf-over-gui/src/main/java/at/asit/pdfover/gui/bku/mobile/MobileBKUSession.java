@@ -0,0 +1,65 @@
+package at.asit.pdfover.gui.bku.mobile;
+
+import org.apache.hc.client5.http.cookie.BasicCookieStore;
+import org.apache.hc.client5.http.cookie.CookieStore;
+
+import at.asit.pdfover.gui.workflow.states.MobileBKUState.UsernameAndPassword;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An A-Trust session, shared by the signatures of one batch of documents
+ *
+ * A-Trust keeps track of the user's authentication in session cookies. As
+ * long as the cookies stay around, later security layer requests of the
+ * same batch are handled within the same session, and the user does not
+ * have to log in again for every document.
+ */
+@Slf4j
+public class MobileBKUSession {
+    private final @NonNull CookieStore cookieStore = new BasicCookieStore();
+
+    /** the credentials entered for this session */
+    public final @NonNull UsernameAndPassword credentials = new UsernameAndPassword();
+
+    private int signatures = 0;
+
+    /* replaced whenever the session is, as whoever logs in next may be someone else */
+    private @NonNull Object identity = new Object();
+
+    public @NonNull CookieStore getCookieStore() {
+        return this.cookieStore;
+    }
+
+    /**
+     * @return an object that stays the same as long as this session does
+     */
+    public synchronized @NonNull Object getIdentity() {
+        return this.identity;
+    }
+
+    /**
+     * @return whether a signature was completed in this session, so the next one may reuse it
+     */
+    public synchronized boolean isEstablished() {
+        return (this.signatures > 0);
+    }
+
+    /**
+     * Record a completed signature
+     */
+    public synchronized void signatureCompleted() {
+        ++this.signatures;
+        log.debug("{} signature(s) in this A-Trust session", this.signatures);
+    }
+
+    /**
+     * Forget the session (but not the credentials), e.g. after A-Trust closed it
+     */
+    public synchronized void reset() {
+        log.debug("Resetting A-Trust session after {} signature(s)", this.signatures);
+        this.cookieStore.clear();
+        this.signatures = 0;
+        this.identity = new Object();
+    }
+}
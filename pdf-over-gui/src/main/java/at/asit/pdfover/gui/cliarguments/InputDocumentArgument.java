@@ -18,6 +18,18 @@ package at.asit.pdfover.gui.cliarguments;
 // Imports
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 import at.asit.pdfover.gui.exceptions.InitializationException;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +40,9 @@ import at.asit.pdfover.commons.Messages;
  */
 @Slf4j
 public class InputDocumentArgument extends Argument {
+
+	private static final Pattern GLOB_CHARACTERS = Pattern.compile("[*?\\[{]");
+
 	/**
 	 * Constructor
 	 */
@@ -47,17 +62,19 @@ public class InputDocumentArgument extends Argument {
 
 				String signatureDocument = args[argOffset + 1];
 
-				File signatureDocumentFile = new File(signatureDocument);
+				List<File> signatureDocumentFiles = expandInput(signatureDocument);
 
-				if(!signatureDocumentFile.exists()) {
+				if(signatureDocumentFiles.isEmpty()) {
 					throw new FileNotFoundException(signatureDocument);
 				}
 
 				var status = getStatus();
-				if (status.document == null)
-					status.document = signatureDocumentFile;
-				else
-					status.pendingDocuments.add(signatureDocumentFile);
+				for (File signatureDocumentFile : signatureDocumentFiles) {
+					if (status.document == null)
+						status.document = signatureDocumentFile;
+					else
+						status.pendingDocuments.add(signatureDocumentFile);
+				}
 
 				return argOffset + 1;
 			}
@@ -71,4 +88,43 @@ public class InputDocumentArgument extends Argument {
 				Messages.getString("argument.invalid.input") + this.getHelpText(), null);
 	}
 
+	/**
+	 * Resolves an input argument to the documents it denotes
+	 *
+	 * A directory stands for all PDF files directly contained in it; a glob
+	 * pattern in the last path component (e.g. <code>in/*.pdf</code>) for all
+	 * files matching it.
+	 *
+	 * @param input the input argument
+	 * @return the matching files in name order (empty if nothing matched)
+	 * @throws IOException
+	 */
+	private static List<File> expandInput(String input) throws IOException {
+		File file = new File(input);
+		List<File> result = new ArrayList<>();
+
+		if (file.isDirectory()) {
+			File[] children = file.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".pdf"));
+			if (children != null)
+				for (File child : children)
+					if (child.isFile())
+						result.add(child);
+		} else if (file.exists()) {
+			result.add(file);
+		} else if (GLOB_CHARACTERS.matcher(file.getName()).find()) {
+			Path dir = (file.getParentFile() != null) ? file.getParentFile().toPath() : Paths.get(".");
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + file.getName());
+			if (Files.isDirectory(dir)) {
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+					for (Path path : stream)
+						if (Files.isRegularFile(path) && matcher.matches(path.getFileName()))
+							result.add(path.toFile());
+				}
+			}
+		}
+
+		result.sort(Comparator.comparing(File::getName));
+		return result;
+	}
+
 }
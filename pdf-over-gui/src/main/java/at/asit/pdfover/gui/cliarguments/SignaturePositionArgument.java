@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.gui.cliarguments;
+
+import at.asit.pdfover.gui.exceptions.InitializationException;
+import at.asit.pdfover.signer.SignaturePosition;
+import lombok.extern.slf4j.Slf4j;
+import at.asit.pdfover.commons.Messages;
+
+/**
+ * CLI Argument to place the signature at a fixed position
+ */
+@Slf4j
+public class SignaturePositionArgument extends Argument {
+	/**
+	 * Constructor
+	 */
+	public SignaturePositionArgument() {
+		super(new String[] {"-pos"}, "argument.help.position");
+	}
+
+	/* (non-Javadoc)
+	 * @see at.asit.pdfover.gui.cliarguments.CLIArgument#handleArgument(java.lang.String[], int, at.asit.pdfover.gui.workflow.StateMachine, at.asit.pdfover.gui.cliarguments.ArgumentHandler)
+	 */
+	@Override
+	public int handleArgument(String[] args, int argOffset,
+			ArgumentHandler handler)
+			throws InitializationException {
+		try {
+			if (args.length > argOffset + 1) {
+
+				String[] position = args[argOffset + 1].split(",");
+				if (position.length < 2 || position.length > 3)
+					throw new IllegalArgumentException("Expected x,y[,page]: " + args[argOffset + 1]);
+
+				double x = Double.parseDouble(position[0].trim());
+				double y = Double.parseDouble(position[1].trim());
+				int page = (position.length > 2) ? Integer.parseInt(position[2].trim()) : 1;
+
+				getStatus().signaturePosition = new SignaturePosition(x, y, page);
+
+				return argOffset + 1;
+			}
+		} catch (Exception ex) {
+			log.error("Signature position argument invalid!", ex);
+			throw new InitializationException(
+					Messages.getString("argument.invalid.position") + this.getHelpText(), ex);
+		}
+
+		throw new InitializationException(
+				Messages.getString("argument.invalid.position") + this.getHelpText(), null);
+	}
+
+}
@@ -55,6 +55,7 @@ import at.asit.pdfover.commons.Messages;
 import at.asit.pdfover.gui.workflow.states.OutputState;
 import at.asit.pdfover.gui.workflow.states.State;
 import at.asit.pdfover.signer.DocumentSource;
+import at.asit.pdfover.signer.TemporaryFileDocumentSource;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -381,10 +382,13 @@ public class OutputComposite extends StateComposite {
 		do {
 			retry = false;
 			try {
-				FileOutputStream outstream = new FileOutputStream(targetFile);
-				outstream.write(source.getByteArray(), 0,
-						source.getByteArray().length);
-				outstream.close();
+				if (source instanceof TemporaryFileDocumentSource) {
+					this.signedDocument = ((TemporaryFileDocumentSource) source).moveTo(targetFile);
+				} else {
+					try (FileOutputStream outstream = new FileOutputStream(targetFile)) {
+						source.transferTo(outstream.getChannel());
+					}
+				}
 			} catch (FileNotFoundException e) {
 				log.warn("Failed to open output file", e);
 				ErrorDialog dialog = new ErrorDialog(getShell(),
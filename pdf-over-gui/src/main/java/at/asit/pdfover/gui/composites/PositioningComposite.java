@@ -21,6 +21,7 @@ import java.awt.Color;
 import java.awt.EventQueue;
 import java.awt.Frame;
 import java.awt.Image;
+import java.awt.Point;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
@@ -28,6 +29,8 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.geom.Point2D;
 
+import javax.swing.SwingUtilities;
+
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.awt.SWT_AWT;
@@ -48,6 +51,9 @@ import lombok.extern.slf4j.Slf4j;
  */
 public class PositioningComposite extends StateComposite {
 
+	/** Zoom factor per key press or mouse wheel step */
+	private static final double ZOOM_STEP = 1.25;
+
 	SignaturePanel viewer = null;
 	Frame frame = null;
 	Composite mainArea = null;
@@ -138,6 +144,17 @@ public class PositioningComposite extends StateComposite {
 		}
 	}
 
+	@Override
+	public void reset() {
+		this.position = null;
+		this.currentPage = 0;
+		this.numPages = 0;
+		this.btnNewPage.setSelection(false);
+		this.btnSign.setEnabled(false);
+		reloadResources();
+		EventQueue.invokeLater(() -> this.viewer.setDocument(null));
+	}
+
 	@Override
 	public void dispose() {
 		this.viewer.setDocument(null);
@@ -211,6 +228,22 @@ public class PositioningComposite extends StateComposite {
 				setFinalPosition();
 				break;
 
+			case KeyEvent.VK_PLUS:
+			case KeyEvent.VK_ADD:
+			case KeyEvent.VK_EQUALS:
+				PositioningComposite.this.viewer.zoom(ZOOM_STEP, null);
+				break;
+
+			case KeyEvent.VK_MINUS:
+			case KeyEvent.VK_SUBTRACT:
+				PositioningComposite.this.viewer.zoom(1 / ZOOM_STEP, null);
+				break;
+
+			case KeyEvent.VK_0:
+			case KeyEvent.VK_NUMPAD0:
+				PositioningComposite.this.viewer.resetZoom();
+				break;
+
 			case KeyEvent.VK_LEFT:
 			case KeyEvent.VK_KP_LEFT:
 				sigXOffset -= Constants.SIGNATURE_KEYBOARD_POSITIONING_OFFSET;
@@ -251,6 +284,13 @@ public class PositioningComposite extends StateComposite {
 				return;
 			this.lastEventTime = e.getWhen();
 
+			if (e.isControlDown()) {
+				// zoom around the cursor
+				Point anchor = SwingUtilities.convertPoint(e.getComponent(), e.getPoint(), PositioningComposite.this.viewer);
+				PositioningComposite.this.viewer.zoom((e.getWheelRotation() < 0) ? ZOOM_STEP : (1 / ZOOM_STEP), anchor);
+				return;
+			}
+
 			int change = e.isShiftDown() ? 5 : 1;
 			int newPage = PositioningComposite.this.currentPage;
 
@@ -21,13 +21,25 @@ import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Point;
+import java.awt.RenderingHints;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JPanel;
 
@@ -48,9 +60,175 @@ public class SignaturePanel extends JPanel {
 	/** Default serial version ID */
 	private static final long serialVersionUID = 1L;
 
+	/** Pixel budget for full resolution page images (64 MiB at 4 bytes per pixel) */
+	private static final long PAGE_CACHE_PIXELS = 16L * 1024 * 1024;
+	/** Pixel budget for reduced resolution page images */
+	private static final long THUMBNAIL_CACHE_PIXELS = 4L * 1024 * 1024;
+	/** Reduction factor of the thumbnails kept for pages evicted from the page cache */
+	private static final int THUMBNAIL_FACTOR = 4;
+	/** Number of pages before and after the current page to render in advance */
+	private static final int PREFETCH_DISTANCE = 1;
+	/** Resolution reduction of the fast first pass shown while a page is rendered in full */
+	private static final int COARSE_FACTOR = 4;
+	/** Edge length of the tiles cached when zoomed in, in screen pixels */
+	private static final int TILE_SIZE = 256;
+	/** Pixel budget for tiles */
+	private static final long TILE_CACHE_PIXELS = 16L * 1024 * 1024;
+	/** Maximum zoom factor */
+	private static final double MAX_ZOOM = 8;
+
+	/** Rendering hints for the fast first pass */
+	private static final RenderingHints COARSE_HINTS = new RenderingHints(null);
+	static {
+		COARSE_HINTS.put(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+		COARSE_HINTS.put(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+		COARSE_HINTS.put(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+		COARSE_HINTS.put(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+	}
+
+	/** Renders pages off the AWT event thread; PDFBox rendering of one document is not thread-safe */
+	private static final ExecutorService renderExecutor = Executors.newSingleThreadExecutor((r) -> {
+		Thread t = new Thread(r, "SignaturePanel-Render");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * A rendered page image and the scale it was rendered at
+	 */
+	private static final class PageImage {
+		final BufferedImage image;
+		final float pageToImageScale;
+
+		PageImage(BufferedImage image, float pageToImageScale) {
+			this.image = image;
+			this.pageToImageScale = pageToImageScale;
+		}
+
+		long pixels() {
+			return (long) this.image.getWidth() * this.image.getHeight();
+		}
+	}
+
+	/**
+	 * LRU cache of page images, bounded by the total number of pixels
+	 * @param <K> the key type
+	 */
+	private static final class PageImageCache<K> {
+		private final long maxPixels;
+		private final LinkedHashMap<K, PageImage> images = new LinkedHashMap<>(16, 0.75f, true);
+		private long pixels = 0;
+
+		PageImageCache(long maxPixels) {
+			this.maxPixels = maxPixels;
+		}
+
+		synchronized PageImage get(K key) {
+			return this.images.get(key);
+		}
+
+		synchronized void put(K key, PageImage image) {
+			PageImage old = this.images.put(key, image);
+			if (old != null)
+				this.pixels -= old.pixels();
+			this.pixels += image.pixels();
+
+			Iterator<Map.Entry<K, PageImage>> it = this.images.entrySet().iterator();
+			while (this.pixels > this.maxPixels && it.hasNext()) {
+				Map.Entry<K, PageImage> eldest = it.next();
+				if (eldest.getKey().equals(key))
+					continue;
+				this.pixels -= eldest.getValue().pixels();
+				it.remove();
+			}
+		}
+
+		synchronized void clear() {
+			this.images.clear();
+			this.pixels = 0;
+		}
+	}
+
+	/**
+	 * Everything the render thread needs to know about the displayed document
+	 *
+	 * Replaced as a whole when the document changes, so that renders for a
+	 * previous document can be recognized and discarded.
+	 */
+	private static final class RenderContext {
+		final PDFRenderer renderer;
+		/** Renderer for the first pass, allowed to subsample images */
+		final PDFRenderer coarseRenderer;
+		final int numPages;
+		/** Page dimensions (width, height) in page space, accounting for rotation */
+		final float[][] pageSizes;
+		final int screenHeight;
+		/** Pages that failed to render; not retried */
+		final Set<Integer> failedPages = new HashSet<>();
+
+		RenderContext(PDDocument pdf, int screenHeight) {
+			this.renderer = new PDFRenderer(pdf);
+			this.coarseRenderer = new PDFRenderer(pdf);
+			this.coarseRenderer.setSubsamplingAllowed(true);
+			this.coarseRenderer.setRenderingHints(COARSE_HINTS);
+			this.numPages = pdf.getNumberOfPages();
+			this.pageSizes = new float[this.numPages][];
+			this.screenHeight = screenHeight;
+			int i = 0;
+			for (PDPage page : pdf.getPages()) {
+				boolean isRotated = ((page.getRotation()%180) == 90);
+				PDRectangle actualPageSize = page.getBBox();
+				this.pageSizes[i++] = isRotated ?
+						new float[] { actualPageSize.getHeight(), actualPageSize.getWidth() } :
+						new float[] { actualPageSize.getWidth(), actualPageSize.getHeight() };
+			}
+		}
+
+		float getFullScale(int page) {
+			return this.screenHeight / this.pageSizes[page-1][1];
+		}
+	}
+
 	/** The PDF file being displayed */
 	private PDDocument pdf = null;
-	private PDFRenderer renderer = null;
+	private volatile RenderContext renderContext = null;
+	/** Whether a render pass is queued on the render executor */
+	private final AtomicBoolean renderScheduled = new AtomicBoolean(false);
+
+	private final PageImageCache<Integer> pageCache = new PageImageCache<>(PAGE_CACHE_PIXELS);
+	private final PageImageCache<Integer> thumbnailCache = new PageImageCache<>(THUMBNAIL_CACHE_PIXELS);
+	private final PageImageCache<String> tileCache = new PageImageCache<>(TILE_CACHE_PIXELS);
+
+	/**
+	 * The tiles of a page visible at the current zoom level
+	 */
+	private static final class TileRequest {
+		final int page;
+		/** scale from page space to screen pixels */
+		final float scale;
+		final int firstX, lastX, firstY, lastY;
+
+		TileRequest(int page, float scale, int firstX, int lastX, int firstY, int lastY) {
+			this.page = page;
+			this.scale = scale;
+			this.firstX = firstX;
+			this.lastX = lastX;
+			this.firstY = firstY;
+			this.lastY = lastY;
+		}
+
+		String key(int x, int y) {
+			return this.page + "@" + Float.floatToIntBits(this.scale) + ":" + x + "," + y;
+		}
+	}
+
+	/** Tiles to render for the current view, null if not zoomed in */
+	private volatile TileRequest tileRequest = null;
+	/** Zoom factor relative to fitting the page into the panel */
+	private double zoom = 1;
+	/** Pan offset of the page in screen pixels, relative to the centered position */
+	private int panX = 0;
+	private int panY = 0;
 
 	/** The image of the rendered PDF page being displayed */
 	Image currentImage = null;
@@ -116,7 +294,7 @@ public class SignaturePanel extends JPanel {
 	/** Color of the signature placeholder border */
 	private Color sigPlaceholderBorderColor = Color.BLUE;
 	/** Current page */
-	private int currentPageNo = 0;
+	private volatile int currentPageNo = 0;
 	/** Number of pages in the document */
 	private int numPages = 0;
 	/** Cursor types */
@@ -148,16 +326,23 @@ public class SignaturePanel extends JPanel {
 	public void setDocument(PDDocument pdf) {
 		this.pdf = pdf;
 		this.sigPagePos = null;
+		this.renderContext = null;
+		this.tileRequest = null;
+		this.pageCache.clear();
+		this.thumbnailCache.clear();
+		this.tileCache.clear();
+		this.zoom = 1;
+		this.panX = 0;
+		this.panY = 0;
 		if (pdf != null)
 		{
-			this.renderer = new PDFRenderer(pdf);
-			this.numPages = pdf.getNumberOfPages();
+			this.renderContext = new RenderContext(pdf, getToolkit().getScreenSize().height);
+			this.numPages = this.renderContext.numPages;
 			this.currentPageNo = -1;
 			showPage(this.numPages);
 		}
 		else
 		{
-			this.renderer = null;
 			this.currentPageNo = 0;
 			this.numPages = 0;
 			renderPageToImage();
@@ -229,45 +414,30 @@ public class SignaturePanel extends JPanel {
 	}
 
 	/**
-	 * Stop the generation of any previous page, and draw the new one.
+	 * Show the current page from the cache, or start rendering it in the background.
 	 *
-	 * @param page the PDFPage to draw.
+	 * While a page is being rendered, a reduced resolution image of it is shown.
+	 * Neighbouring pages are rendered in advance.
 	 */
 	private synchronized void renderPageToImage() {
-		if (this.pdf == null)
+		if (this.pdf == null || this.numPages < 1)
 		{
 			this.currentImage = null;
 			return;
 		}
 
-		boolean newPage = false;
-		PDPage currentPage;
-		// set up the new page
-		if (this.currentPageNo > this.numPages)
-		{
-			// New last page - use old last page as template
-			currentPage = this.pdf.getPage(this.numPages-1);
-			newPage = true;
-		}
-		else
-			currentPage = this.pdf.getPage(this.currentPageNo-1);
-
+		// a new last page uses the old last page as template
+		boolean newPage = (this.currentPageNo > this.numPages);
+		int whichPage = Math.max(1, Math.min(this.currentPageNo, this.numPages));
 
-		if (currentPage == null) {
-			// no page
-			this.currentImage = null;
-			return;
-		}
-		
-		boolean isRotated = ((currentPage.getRotation()%180) == 90);
-		PDRectangle actualPageSize = currentPage.getBBox();
-		this.pageWidth = isRotated ? actualPageSize.getHeight() : actualPageSize.getWidth();
-		this.pageHeight = isRotated ? actualPageSize.getWidth() : actualPageSize.getHeight();
-		this.pageToImageScale = getToolkit().getScreenSize().height / this.pageHeight;
+		RenderContext context = this.renderContext;
+		this.pageWidth = context.pageSizes[whichPage-1][0];
+		this.pageHeight = context.pageSizes[whichPage-1][1];
 
 		// get the new image
 		if (newPage)
 		{
+			this.pageToImageScale = context.getFullScale(whichPage);
 			int renderHeight = (int)(0.5 + this.scale(this.pageHeight, U.PAGE_REL, U.IMAGE, Dim.X));
 			int renderWidth = (int)(0.5 + this.scale(this.pageWidth, U.PAGE_REL, U.IMAGE, Dim.Y));
 			this.currentImage = new BufferedImage(renderWidth, renderHeight, BufferedImage.TYPE_INT_RGB);
@@ -277,16 +447,11 @@ public class SignaturePanel extends JPanel {
 		}
 		else
 		{
-			int whichPage = Math.min(this.currentPageNo, this.numPages);
-
-			try {
-				this.currentImage = renderer.renderImage(whichPage-1, this.pageToImageScale);
-			} catch (IOException e) {
-				log.error(String.format("Failed to render image for page %d of %d", whichPage, this.numPages), e);
-				this.currentImage = null;
-			}
+			showCachedImage(whichPage);
 		}
 
+		scheduleRendering();
+
 		if (this.sigPagePos == null)
 		{
 			setSignaturePosition(
@@ -296,6 +461,274 @@ public class SignaturePanel extends JPanel {
 		}
 	}
 
+	private void setCurrentImage(PageImage image) {
+		if (image == null) {
+			this.currentImage = null;
+			return;
+		}
+		this.currentImage = image.image;
+		this.pageToImageScale = image.pageToImageScale;
+	}
+
+	/**
+	 * Show the best available image of a page
+	 * @param page the page number (1-based)
+	 */
+	private void showCachedImage(int page) {
+		PageImage image = this.pageCache.get(page);
+		if (image == null)
+			image = this.thumbnailCache.get(page);
+		setCurrentImage(image);
+	}
+
+	/**
+	 * Make sure the render thread looks for pages to render
+	 */
+	private void scheduleRendering() {
+		if (this.renderScheduled.compareAndSet(false, true))
+			renderExecutor.execute(this::renderPending);
+	}
+
+	/**
+	 * A page rendering job
+	 */
+	private static final class RenderJob {
+		final int page;
+		final boolean coarse;
+		/** the block of tiles to render in one pass, if this job renders tiles */
+		final TileRequest tiles;
+
+		RenderJob(int page, boolean coarse) {
+			this.page = page;
+			this.coarse = coarse;
+			this.tiles = null;
+		}
+
+		RenderJob(TileRequest tiles) {
+			this.page = tiles.page;
+			this.coarse = false;
+			this.tiles = tiles;
+		}
+	}
+
+	/**
+	 * Pick the most urgent rendering job for the current page
+	 *
+	 * Jobs are picked one at a time rather than queued, so pages the user has
+	 * moved away from are never rendered. In order: a coarse image of the
+	 * current page, the missing visible tiles when zoomed in (as one block),
+	 * the full image of the current page, then the neighbours.
+	 * @param context the render context
+	 * @return the next job, or null if there is nothing left to render
+	 */
+	private RenderJob nextRenderJob(RenderContext context) {
+		if (context.numPages < 1)
+			return null;
+		int current = Math.max(1, Math.min(this.currentPageNo, context.numPages));
+
+		if (needsRender(context, current) && (this.thumbnailCache.get(current) == null))
+			return new RenderJob(current, true);
+		TileRequest tiles = this.tileRequest;
+		if ((tiles != null) && (tiles.page == current) && !context.failedPages.contains(current)) {
+			int firstX = Integer.MAX_VALUE, lastX = -1, firstY = Integer.MAX_VALUE, lastY = -1;
+			for (int y = tiles.firstY; y <= tiles.lastY; ++y) {
+				for (int x = tiles.firstX; x <= tiles.lastX; ++x) {
+					if (this.tileCache.get(tiles.key(x, y)) == null) {
+						firstX = Math.min(firstX, x);
+						lastX = Math.max(lastX, x);
+						firstY = Math.min(firstY, y);
+						lastY = Math.max(lastY, y);
+					}
+				}
+			}
+			if (lastX >= 0)
+				return new RenderJob(new TileRequest(tiles.page, tiles.scale, firstX, lastX, firstY, lastY));
+		}
+		if (needsRender(context, current))
+			return new RenderJob(current, false);
+		for (int i = 1; i <= PREFETCH_DISTANCE; ++i) {
+			if ((current + i <= context.numPages) && needsRender(context, current + i))
+				return new RenderJob(current + i, false);
+			if ((current - i >= 1) && needsRender(context, current - i))
+				return new RenderJob(current - i, false);
+		}
+		return null;
+	}
+
+	private boolean needsRender(RenderContext context, int page) {
+		return (this.pageCache.get(page) == null) && !context.failedPages.contains(page);
+	}
+
+	/**
+	 * Render pages until the current page and its neighbours are cached
+	 *
+	 * Runs on the render executor.
+	 */
+	private void renderPending() {
+		this.renderScheduled.set(false);
+
+		RenderContext context;
+		RenderJob job;
+		while (((context = this.renderContext) != null) && ((job = nextRenderJob(context)) != null)) {
+			final int page = job.page;
+			try {
+				float scale = context.getFullScale(page);
+				if (job.tiles != null) {
+					TileRequest tiles = job.tiles;
+					BufferedImage block = renderTiles(context, tiles);
+					if (context != this.renderContext)
+						return;
+					for (int y = tiles.firstY; y <= tiles.lastY; ++y)
+						for (int x = tiles.firstX; x <= tiles.lastX; ++x)
+							this.tileCache.put(tiles.key(x, y), new PageImage(
+									cutTile(block, x - tiles.firstX, y - tiles.firstY), tiles.scale));
+				} else if (job.coarse) {
+					PageImage image = renderCoarse(context, page, scale / COARSE_FACTOR);
+					if (context != this.renderContext)
+						return;
+					this.thumbnailCache.put(page, image);
+				} else {
+					PageImage image = new PageImage(context.renderer.renderImage(page-1, scale), scale);
+					if (context != this.renderContext)
+						return;
+					this.pageCache.put(page, image);
+					this.thumbnailCache.put(page, createThumbnail(image));
+				}
+			} catch (IOException | RuntimeException e) {
+				if (context != this.renderContext)
+					return;
+				log.error(String.format("Failed to render image for page %d of %d", page, context.numPages), e);
+				context.failedPages.add(page);
+			}
+
+			final RenderContext renderedContext = context;
+			EventQueue.invokeLater(() -> {
+				if ((renderedContext == this.renderContext) && (this.currentPageNo == page)) {
+					showCachedImage(page);
+					repaint();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Render a block of tiles of a zoomed-in page at screen resolution
+	 *
+	 * The page content is interpreted once for the whole block, clipped to
+	 * it, rather than once per tile.
+	 * @param context the render context
+	 * @param tiles the tiles to render
+	 * @return an image covering all tiles of the block
+	 * @throws IOException
+	 */
+	private static BufferedImage renderTiles(RenderContext context, TileRequest tiles) throws IOException {
+		int width = (tiles.lastX - tiles.firstX + 1) * TILE_SIZE;
+		int height = (tiles.lastY - tiles.firstY + 1) * TILE_SIZE;
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setBackground(Color.WHITE);
+		g.clearRect(0, 0, width, height);
+		g.clipRect(0, 0, width, height);
+		g.translate(-tiles.firstX * TILE_SIZE, -tiles.firstY * TILE_SIZE);
+		try {
+			context.renderer.renderPageToGraphics(tiles.page-1, g, tiles.scale);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * Copy one tile out of a rendered block, so the cache does not keep the whole block alive
+	 * @param block the rendered block
+	 * @param x the tile column within the block
+	 * @param y the tile row within the block
+	 * @return the tile image
+	 */
+	private static BufferedImage cutTile(BufferedImage block, int x, int y) {
+		BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+		tile.setData(block.getRaster().createChild(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE, 0, 0, null));
+		return tile;
+	}
+
+	/**
+	 * Render a page quickly at reduced quality
+	 * @param context the render context
+	 * @param page the page number (1-based)
+	 * @param scale the scale to render at
+	 * @return the page image
+	 * @throws IOException
+	 */
+	private static PageImage renderCoarse(RenderContext context, int page, float scale) throws IOException {
+		int width = Math.max(1, (int) (context.pageSizes[page-1][0] * scale));
+		int height = Math.max(1, (int) (context.pageSizes[page-1][1] * scale));
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setBackground(Color.WHITE);
+		g.clearRect(0, 0, width, height);
+		g.setRenderingHints(COARSE_HINTS);
+		try {
+			context.coarseRenderer.renderPageToGraphics(page-1, g, scale);
+		} finally {
+			g.dispose();
+		}
+		return new PageImage(image, scale);
+	}
+
+	private static PageImage createThumbnail(PageImage image) {
+		int width = Math.max(1, image.image.getWidth() / THUMBNAIL_FACTOR);
+		int height = Math.max(1, image.image.getHeight() / THUMBNAIL_FACTOR);
+		BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = thumbnail.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(image.image, 0, 0, width, height, null);
+		g.dispose();
+		return new PageImage(thumbnail, image.pageToImageScale * width / image.image.getWidth());
+	}
+
+	/**
+	 * Zoom in or out, keeping the given point in place
+	 * @param factor the factor to multiply the zoom level with
+	 * @param anchor the point to zoom around, in panel coordinates, or null for the center
+	 */
+	public void zoom(double factor, Point anchor) {
+		double newZoom = clamp(this.zoom * factor, 1, MAX_ZOOM);
+		if ((newZoom == this.zoom) || (this.pageWidth <= 0) || (this.pageHeight <= 0))
+			return;
+
+		double anchorX = (anchor != null) ? anchor.getX() : (getWidth() / 2.0);
+		double anchorY = (anchor != null) ? anchor.getY() : (getHeight() / 2.0);
+		double oldScale = getFitScale() * this.zoom;
+		double newScale = getFitScale() * newZoom;
+		// page point under the anchor
+		double pageX = (anchorX - this.offX) / oldScale;
+		double pageY = (anchorY - this.offY) / oldScale;
+
+		this.zoom = newZoom;
+		int screenWidth = (int)(this.pageWidth * newScale);
+		int screenHeight = (int)(this.pageHeight * newScale);
+		this.panX = (int) Math.round(anchorX - (pageX * newScale) - ((getWidth() - screenWidth) / 2));
+		this.panY = (int) Math.round(anchorY - (pageY * newScale) - ((getHeight() - screenHeight) / 2));
+		repaint();
+	}
+
+	/**
+	 * Fit the page into the panel again
+	 */
+	public void resetZoom() {
+		this.zoom = 1;
+		this.panX = 0;
+		this.panY = 0;
+		repaint();
+	}
+
+	/**
+	 * @return the scale from page space to screen pixels that fits the page into the panel
+	 */
+	private double getFitScale() {
+		return Math.min(getWidth() / this.pageWidth, getHeight() / this.pageHeight);
+	}
+
 	/**
 	 * Draw the image.
 	 */
@@ -305,23 +738,32 @@ public class SignaturePanel extends JPanel {
 		g.setColor(getBackground());
 		g.fillRect(0, 0, getWidth(), getHeight());
 		if (this.currentImage == null) {
+			this.tileRequest = null;
 			g.setColor(Color.black);
 			g.drawString(Messages.getString("common.working"), getWidth() / 2 - 30, getHeight() / 2);
 		} else {
-			this.imageToScreenScale = Math.min(
-				renderPanelSize.getWidth() / this.currentImage.getWidth(null),
-				renderPanelSize.getHeight() / this.currentImage.getHeight(null));
-			// draw the image
-			int actualRenderWidth = (int)(this.currentImage.getWidth(null) * this.imageToScreenScale);
-			int actualRenderHeight = (int)(this.currentImage.getHeight(null) * this.imageToScreenScale);
-
-			// draw it centered within the panel
-			this.offX = (renderPanelSize.width - actualRenderWidth) / 2;
-			this.offY = (renderPanelSize.height - actualRenderHeight) / 2;
+			// page to screen scale, independent of the resolution the current image was rendered at
+			double pageToScreenScale = getFitScale() * this.zoom;
+			this.imageToScreenScale = pageToScreenScale / this.pageToImageScale;
+			int actualRenderWidth = (int)(this.pageWidth * pageToScreenScale);
+			int actualRenderHeight = (int)(this.pageHeight * pageToScreenScale);
+
+			// draw it centered within the panel, shifted by the pan offset
+			int centerX = (renderPanelSize.width - actualRenderWidth) / 2;
+			int centerY = (renderPanelSize.height - actualRenderHeight) / 2;
+			this.panX = (actualRenderWidth <= renderPanelSize.width) ? 0 :
+				(int) clamp(this.panX, renderPanelSize.width - actualRenderWidth - centerX, -centerX);
+			this.panY = (actualRenderHeight <= renderPanelSize.height) ? 0 :
+				(int) clamp(this.panY, renderPanelSize.height - actualRenderHeight - centerY, -centerY);
+			this.offX = centerX + this.panX;
+			this.offY = centerY + this.panY;
 
 			// draw document
 			g.drawImage(this.currentImage, this.offX, this.offY, actualRenderWidth, actualRenderHeight, null);
-			
+			if (this.zoom > 1)
+				drawTiles(g, (float) pageToScreenScale, actualRenderWidth, actualRenderHeight);
+			else
+				this.tileRequest = null;
 
 			// draw signature
 			int sigX = (int) this.scale(this.sigPagePos.getX(), U.PAGE_ABS, U.SCREEN_ABS, Dim.X);
@@ -340,6 +782,47 @@ public class SignaturePanel extends JPanel {
 		}
 	}
 
+	/**
+	 * Draw the cached tiles of the visible part of the page, and request the missing ones
+	 * @param g the graphics to draw on
+	 * @param scale page to screen scale
+	 * @param width page width on screen
+	 * @param height page height on screen
+	 */
+	private void drawTiles(Graphics g, float scale, int width, int height) {
+		int visibleLeft = Math.max(0, -this.offX);
+		int visibleTop = Math.max(0, -this.offY);
+		int visibleRight = Math.min(width, getWidth() - this.offX);
+		int visibleBottom = Math.min(height, getHeight() - this.offY);
+		// the new last page is blank and needs no tiles
+		if ((visibleRight <= visibleLeft) || (visibleBottom <= visibleTop) || (this.currentPageNo > this.numPages)) {
+			this.tileRequest = null;
+			return;
+		}
+
+		TileRequest tiles = new TileRequest(this.currentPageNo, scale,
+				visibleLeft / TILE_SIZE, (visibleRight - 1) / TILE_SIZE,
+				visibleTop / TILE_SIZE, (visibleBottom - 1) / TILE_SIZE);
+
+		Graphics clipped = g.create();
+		clipped.clipRect(this.offX, this.offY, width, height);
+		boolean complete = true;
+		for (int y = tiles.firstY; y <= tiles.lastY; ++y) {
+			for (int x = tiles.firstX; x <= tiles.lastX; ++x) {
+				PageImage tile = this.tileCache.get(tiles.key(x, y));
+				if (tile == null)
+					complete = false;
+				else
+					clipped.drawImage(tile.image, this.offX + x * TILE_SIZE, this.offY + y * TILE_SIZE, null);
+			}
+		}
+		clipped.dispose();
+
+		this.tileRequest = complete ? null : tiles;
+		if (!complete)
+			scheduleRendering();
+	}
+
 	/**
 	 * Handles notification of the fact that some part of the image changed.
 	 * Repaints that portion.
@@ -360,6 +843,9 @@ public class SignaturePanel extends JPanel {
 		private boolean doDrag = false;
 		private int dragXOffset = 0;
 		private int dragYOffset = 0;
+		private boolean doPan = false;
+		private int panStartX = 0;
+		private int panStartY = 0;
 
 		private void updateSigPosDrag(MouseEvent evt) {
 			SignaturePanel.this.setSignaturePosition(
@@ -396,12 +882,21 @@ public class SignaturePanel extends JPanel {
 				updateSigPosDrag(evt);
 				setCursor(Cursors.MOVE);
 			}
+			else if (SignaturePanel.this.zoom > 1)
+			{
+				/* other buttons pan the zoomed-in page */
+				this.doPan = true;
+				this.panStartX = evt.getX();
+				this.panStartY = evt.getY();
+				setCursor(Cursors.MOVE);
+			}
 		}
 
 		/** Handles a mouseReleased event */
 		@Override
 		public void mouseReleased(MouseEvent evt) {
 			this.doDrag = false;
+			this.doPan = false;
 			boolean onSig = isOnSignature(evt);
 			setCursor(onSig ? Cursors.HAND : Cursors.DEFAULT);
 		}
@@ -413,6 +908,13 @@ public class SignaturePanel extends JPanel {
 		public void mouseDragged(MouseEvent evt) {
 			if (this.doDrag)
 				updateSigPosDrag(evt);
+			else if (this.doPan) {
+				SignaturePanel.this.panX += evt.getX() - this.panStartX;
+				SignaturePanel.this.panY += evt.getY() - this.panStartY;
+				this.panStartX = evt.getX();
+				this.panStartY = evt.getY();
+				repaint();
+			}
 		}
 	};
 
@@ -44,6 +44,20 @@ public abstract class StateComposite extends Composite {
 
 	public final void doLayout() { this.layout(true,true); this.onDisplay(); }
 
+	/**
+	 * Attach a recycled composite to a new state
+	 * @param state The new State
+	 */
+	public void setState(State state) {
+		this.state = state;
+	}
+
+	/**
+	 * Return to the initial state so the composite can be reused,
+	 * called when it is recycled instead of disposed
+	 */
+	public void reset() {}
+
 	/**
 	 * Reloads the localizeable resources
 	 */
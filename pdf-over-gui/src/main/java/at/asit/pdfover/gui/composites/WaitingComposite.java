@@ -20,6 +20,7 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.FormAttachment;
 import org.eclipse.swt.layout.FormData;
 import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.ProgressBar;
@@ -32,6 +33,9 @@ import at.asit.pdfover.gui.workflow.states.State;
  */
 public class WaitingComposite extends StateComposite {
 	private Label lbl_description;
+	private Button btn_cancel;
+	private String messageKey = "waiting.message";
+	private Runnable cancelHandler = null;
 
 	/**
 	 * Create the composite.
@@ -59,6 +63,30 @@ public class WaitingComposite extends StateComposite {
 		fd_progressBar.left = new FormAttachment(50, -100);
 		fd_progressBar.right = new FormAttachment(50, +100);
 		progressBar.setLayoutData(fd_progressBar);
+
+		this.btn_cancel = new Button(this, SWT.NONE);
+		SWTUtils.anchor(btn_cancel).top(progressBar, 10).left(50, -50).right(50, 50);
+		SWTUtils.addSelectionListener(btn_cancel, (e) -> { if (this.cancelHandler != null) this.cancelHandler.run(); });
+		SWTUtils.setLocalizedText(btn_cancel, "common.Cancel");
+		this.btn_cancel.setVisible(false);
+	}
+
+	/**
+	 * Set the message to display
+	 * @param messageKey the message key
+	 */
+	public void setMessage(String messageKey) {
+		this.messageKey = messageKey;
+		SWTUtils.setLocalizedText(lbl_description, messageKey);
+	}
+
+	/**
+	 * Set the action of the cancel button
+	 * @param cancelHandler the action, or null to hide the cancel button
+	 */
+	public void setCancelHandler(Runnable cancelHandler) {
+		this.cancelHandler = cancelHandler;
+		this.btn_cancel.setVisible(cancelHandler != null);
 	}
 
 	/* (non-Javadoc)
@@ -66,6 +94,7 @@ public class WaitingComposite extends StateComposite {
 	 */
 	@Override
 	public void reloadResources() {
-		SWTUtils.setLocalizedText(lbl_description, "waiting.message");
+		SWTUtils.setLocalizedText(lbl_description, this.messageKey);
+		SWTUtils.setLocalizedText(btn_cancel, "common.Cancel");
 	}
 }
@@ -27,6 +27,7 @@ import java.security.cert.CertificateException;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Vector;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -62,6 +63,7 @@ import at.asit.pdfover.gui.workflow.config.ConfigurationManager;
 import at.asit.pdfover.gui.workflow.config.ConfigurationDataInMemory.KeyStorePassStorageType;
 import at.asit.pdfover.gui.workflow.config.ConfigurationDataInMemory;
 import at.asit.pdfover.gui.workflow.states.State;
+import at.asit.pdfover.signer.pdfas.PdfAs4KeystoreSignerCache;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -466,6 +468,15 @@ public class KeystoreConfigurationComposite extends ConfigurationCompositeBase {
 	@Override
 	public void storeConfiguration(ConfigurationManager store) {
 		ConfigurationDataInMemory config = this.configurationContainer;
+
+		/* a different keystore or password makes any cached signer useless */
+		if (!Objects.equals(config.keystoreFile, store.getKeyStoreFile()) ||
+				!Objects.equals(config.keystoreType, store.getKeyStoreType()) ||
+				!Objects.equals(config.keystoreAlias, store.getKeyStoreAlias()) ||
+				!Objects.equals(config.keystoreStorePass, store.getKeyStoreStorePass()) ||
+				!Objects.equals(config.keystoreKeyPass, store.getKeyStoreKeyPass()))
+			PdfAs4KeystoreSignerCache.invalidate(store.getKeyStoreFile());
+
 		store.setKeyStoreFilePersistent(config.keystoreFile);
 		store.setKeyStoreTypePersistent(config.keystoreType);
 		store.setKeyStoreAliasPersistent(config.keystoreAlias);
@@ -18,40 +18,51 @@ package at.asit.pdfover.gui.utils;
 // Imports
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
-import org.apache.commons.httpclient.methods.multipart.PartSource;
+import org.apache.hc.client5.http.entity.mime.AbstractContentBody;
+import org.apache.hc.core5.http.ContentType;
 
 import at.asit.pdfover.signer.DocumentSource;
 
 /**
- *
+ * Multipart body part streaming a DocumentSource
  */
-public class FileUploadSource implements PartSource {
+public class DocumentSourceBody extends AbstractContentBody {
 
-	private DocumentSource source;
+	private final DocumentSource source;
+	private final String fileName;
 
 	/**
 	 * Constructor
 	 *
 	 * @param source
 	 *            the source
+	 * @param contentType
+	 *            the content type of the part
+	 * @param fileName
+	 *            the file name to report
 	 */
-	public FileUploadSource(DocumentSource source) {
+	public DocumentSourceBody(DocumentSource source, ContentType contentType, String fileName) {
+		super(contentType);
 		this.source = source;
+		this.fileName = fileName;
 	}
 
 	@Override
-	public long getLength() {
-		return this.source.getLength();
+	public String getFilename() {
+		return this.fileName;
 	}
 
 	@Override
-	public String getFileName() {
-		return "sign.pdf";
+	public long getContentLength() {
+		return this.source.getLength();
 	}
 
 	@Override
-	public InputStream createInputStream() throws IOException {
-		return this.source.getInputStream();
+	public void writeTo(OutputStream out) throws IOException {
+		try (InputStream in = this.source.getInputStream()) {
+			in.transferTo(out);
+		}
 	}
 }
@@ -1,10 +1,345 @@
 package at.asit.pdfover.gui.utils;
 
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.cookie.BasicCookieStore;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.routing.DefaultProxyRoutePlanner;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+
+import at.asit.pdfover.commons.Constants;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * HTTP client setup
+ *
+ * All requests to remote services (A-Trust, update check) go through one
+ * shared, pooled client. Connections are kept alive between requests, and
+ * since all TLS connections come from the same SSL context, its session
+ * cache lets new connections resume earlier TLS sessions. A proxy set with
+ * {@link #setProxy} is used explicitly; otherwise the system properties apply.
+ *
+ * Long polls go through a second, asynchronous client, so that waiting for
+ * their responses does not take up a thread. Requests to the local BKU use
+ * a third client, which never goes through a proxy.
+ */
+@Slf4j
 public final class HttpClientUtils {
+    private HttpClientUtils() {}
+
+    /* long polls hold a connection each, so leave some room */
+    private static final int MAX_CONNECTIONS = 50;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    /* A-Trust drops idle connections after about two minutes */
+    private static final TimeValue IDLE_TIMEOUT = TimeValue.ofSeconds(90);
+    private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(2);
+    /* a warmed up connection stays in the pool until IDLE_TIMEOUT, so don't warm up more often than this */
+    private static final long WARM_UP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Connection reuse of the shared client
+     */
+    public static final class Statistics {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong connectionsOpened = new AtomicLong();
+
+        private Statistics() {}
+
+        /** @return the number of requests sent */
+        public long getRequests() { return this.requests.get(); }
+        /** @return the number of connections opened */
+        public long getConnectionsOpened() { return this.connectionsOpened.get(); }
+        /** @return the number of requests sent on an already open connection */
+        public long getReusedConnectionRequests() { return Math.max(0, getRequests() - getConnectionsOpened()); }
+
+        @Override
+        public String toString() {
+            long requests = getRequests();
+            String result = String.format("%d requests, %d connections opened, %d%% reused",
+                requests, getConnectionsOpened(), (requests == 0) ? 0 : (100 * getReusedConnectionRequests() / requests));
+            PoolStats pool = getPoolStats();
+            if (pool != null)
+                result += String.format(" (pool: %d leased, %d idle, %d pending)", pool.getLeased(), pool.getAvailable(), pool.getPending());
+            return result;
+        }
+    }
+
+    private static final Statistics statistics = new Statistics();
+
+    /* guarded by HttpClientUtils.class */
+    private static CloseableHttpClient sharedClient = null;
+    private static PoolingHttpClientConnectionManager sharedConnectionManager = null;
+    private static CloseableHttpAsyncClient sharedAsyncClient = null;
+    private static CloseableHttpClient localClient = null;
+    private static String proxyHost = null;
+    private static int proxyPort = -1;
+    private static String proxyUser = null;
+    private static String proxyPass = null;
+
+    /* origin -> System.nanoTime() of the last warm-up */
+    private static final Map<String, Long> warmedUp = new ConcurrentHashMap<>();
+
+    /**
+     * @return a builder for a client honoring the system properties (proxy, trust store)
+     */
     public static HttpClientBuilder builderWithSettings() {
         return HttpClients.custom().useSystemProperties();
     }
+
+    /**
+     * Get the shared client
+     *
+     * Must not be closed by callers. Redirects are followed and cookies are
+     * shared unless the request is executed with its own context.
+     * @return the shared client
+     */
+    public static synchronized CloseableHttpClient getSharedClient() {
+        if (sharedClient == null) {
+            sharedConnectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .useSystemProperties()
+                .setMaxConnTotal(MAX_CONNECTIONS)
+                .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                    .build())
+                .setConnectionFactory(socket -> {
+                    statistics.connectionsOpened.incrementAndGet();
+                    return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+                })
+                .build();
+
+            HttpClientBuilder builder = builderWithSettings()
+                .setConnectionManager(sharedConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_TIMEOUT)
+                .addResponseInterceptorLast((response, entity, context) -> statistics.requests.incrementAndGet());
+
+            if (proxyHost != null) {
+                log.debug("HTTP client using proxy {}", getProxy());
+                builder.setRoutePlanner(new DefaultProxyRoutePlanner(getProxy()));
+                builder.setDefaultCredentialsProvider(getProxyCredentials());
+            }
+            sharedClient = builder.build();
+        }
+        return sharedClient;
+    }
+
+    /**
+     * Get the shared asynchronous client, for long polling
+     *
+     * Must not be closed by callers. Uses the same proxy settings as
+     * {@link #getSharedClient()}, but its own connections.
+     * @return the shared asynchronous client, already started
+     */
+    public static synchronized CloseableHttpAsyncClient getSharedAsyncClient() {
+        if (sharedAsyncClient == null) {
+            HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                    .useSystemProperties()
+                    .setMaxConnTotal(MAX_CONNECTIONS)
+                    .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                        .build())
+                    .build())
+                /* a handful of long polls at most, one dispatcher thread is plenty */
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_TIMEOUT);
+
+            if (proxyHost != null) {
+                builder.setRoutePlanner(new DefaultProxyRoutePlanner(getProxy()));
+                builder.setDefaultCredentialsProvider(getProxyCredentials());
+            }
+            sharedAsyncClient = builder.build();
+            sharedAsyncClient.start();
+        }
+        return sharedAsyncClient;
+    }
+
+    /**
+     * Get the shared client for the local BKU
+     *
+     * Must not be closed by callers. Keeps connections to the local BKU
+     * alive between requests; no proxy, no cookies, no redirects.
+     * @return the local client
+     */
+    public static synchronized CloseableHttpClient getLocalClient() {
+        if (localClient == null) {
+            localClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(4)
+                    .setMaxConnPerRoute(4)
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                        .build())
+                    .build())
+                .setUserAgent(Constants.APP_NAME_VERSION)
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_TIMEOUT)
+                .build();
+        }
+        return localClient;
+    }
+
+    /* guarded by HttpClientUtils.class */
+    private static HttpHost getProxy() {
+        return new HttpHost(proxyHost, proxyPort);
+    }
+
+    /* guarded by HttpClientUtils.class */
+    private static BasicCredentialsProvider getProxyCredentials() {
+        if ((proxyUser == null) || (proxyPass == null))
+            return null;
+        BasicCredentialsProvider credentials = new BasicCredentialsProvider();
+        credentials.setCredentials(new AuthScope(getProxy()), new UsernamePasswordCredentials(proxyUser, proxyPass.toCharArray()));
+        return credentials;
+    }
+
+    /**
+     * Set the proxy for the shared client
+     *
+     * If the settings changed, the current clients are closed and the next
+     * {@link #getSharedClient()} or {@link #getSharedAsyncClient()} creates
+     * one with the new settings.
+     * @param host proxy host, or null to use the system settings
+     * @param port proxy port, or -1 for the default
+     * @param user proxy user, or null
+     * @param pass proxy password, or null
+     */
+    public static synchronized void setProxy(String host, int port, String user, String pass) {
+        if ((host != null) && host.trim().isEmpty())
+            host = null;
+        if ((port <= 0) || (port > 0xFFFF))
+            port = -1;
+        if ((user != null) && user.isEmpty())
+            user = null;
+
+        if (Objects.equals(host, proxyHost) && (port == proxyPort) &&
+                Objects.equals(user, proxyUser) && Objects.equals(pass, proxyPass))
+            return;
+
+        proxyHost = host;
+        proxyPort = port;
+        proxyUser = user;
+        proxyPass = pass;
+        closeRemoteClients();
+    }
+
+    /**
+     * Close the shared clients, if they were created
+     */
+    public static synchronized void closeSharedClient() {
+        if (localClient != null) {
+            localClient.close(CloseMode.GRACEFUL);
+            localClient = null;
+        }
+        closeRemoteClients();
+    }
+
+    private static synchronized void closeRemoteClients() {
+        if (sharedAsyncClient != null) {
+            /* outstanding long polls are of no use to anyone anymore */
+            sharedAsyncClient.close(CloseMode.IMMEDIATE);
+            sharedAsyncClient = null;
+        }
+        if (sharedClient == null)
+            return;
+        log.debug("Closing shared HTTP client: {}", statistics);
+        sharedClient.close(CloseMode.GRACEFUL);
+        sharedClient = null;
+        sharedConnectionManager = null;
+        warmedUp.clear();
+    }
+
+    /**
+     * Open a connection to the given service in the background
+     *
+     * Sends a HEAD request through the shared client, so that DNS lookup,
+     * proxy CONNECT and TLS handshake are done, and a keep-alive connection
+     * is left idle in the pool for the next real request to the same
+     * origin. Does nothing if the origin was warmed up recently. Failures
+     * are only logged; the real request will run into them again.
+     * @param uri an address of the service
+     */
+    public static void warmUp(URI uri) {
+        if ((uri == null) || (uri.getScheme() == null) || (uri.getHost() == null))
+            return;
+        String origin = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+        long now = System.nanoTime();
+        Long last = warmedUp.get(origin);
+        if ((last != null) && (now - last < WARM_UP_INTERVAL_NANOS))
+            return;
+        boolean claimed = (last == null) ? (warmedUp.putIfAbsent(origin, now) == null) : warmedUp.replace(origin, last, now);
+        if (!claimed)
+            return; /* another thread is already on it */
+
+        Thread thread = new Thread(new WarmUpThread(uri), "HttpWarmUpThread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static class WarmUpThread implements Runnable {
+        private final URI uri;
+
+        WarmUpThread(URI uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public void run() {
+            /* own cookies, and no redirects: only the connection is of interest */
+            HttpClientContext context = HttpClientContext.create();
+            context.setCookieStore(new BasicCookieStore());
+            context.setRequestConfig(RequestConfig.custom().setRedirectsEnabled(false).build());
+
+            long start = System.nanoTime();
+            try {
+                int status = getSharedClient().execute(new HttpHead(this.uri), context, response -> response.getCode());
+                log.debug("Warmed up connection to {} in {} ms (HTTP {})", this.uri.getHost(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), status);
+            } catch (Exception e) {
+                log.info("Warming up connection to {} failed: {}", this.uri.getHost(), e.toString());
+            }
+        }
+    }
+
+    /**
+     * @return connection reuse statistics of the shared client
+     */
+    public static Statistics getStatistics() {
+        return statistics;
+    }
+
+    private static synchronized PoolStats getPoolStats() {
+        return (sharedConnectionManager != null) ? sharedConnectionManager.getTotalStats() : null;
+    }
 }
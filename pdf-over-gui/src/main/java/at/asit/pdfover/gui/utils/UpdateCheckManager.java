@@ -11,7 +11,6 @@ import at.asit.pdfover.gui.controls.Dialog.ICON;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.eclipse.swt.SWT;
@@ -48,25 +47,23 @@ public final class UpdateCheckManager {
 
     private static String latestVersionNotified = null;
     private static Status runCheck(Shell shell) {
-        try (final CloseableHttpClient httpClient = HttpClientUtils.builderWithSettings().build()) {
-            try (final CloseableHttpResponse httpResponse = httpClient.execute(new HttpGet(Constants.CURRENT_RELEASE_URL))) {
-                final String latestVersion = EntityUtils.toString(httpResponse.getEntity()).trim();
-                if (!VersionComparator.lessThan(Constants.APP_VERSION, latestVersion))
-                    return Status.UP_TO_DATE;
+        try (final CloseableHttpResponse httpResponse = HttpClientUtils.getSharedClient().execute(new HttpGet(Constants.CURRENT_RELEASE_URL))) {
+            final String latestVersion = EntityUtils.toString(httpResponse.getEntity()).trim();
+            if (!VersionComparator.lessThan(Constants.APP_VERSION, latestVersion))
+                return Status.UP_TO_DATE;
 
-                if ((latestVersionNotified == null) || VersionComparator.lessThan(latestVersionNotified, latestVersion)) {
-                    latestVersionNotified = latestVersion;
-                    // invoke GUI message in main thread
-                    shell.getDisplay().asyncExec(() -> {
-                        Dialog info = new Dialog(shell, Messages.getString("version_check.UpdateTitle"), Messages.formatString("version_check.UpdateText", latestVersion),
-                                                    BUTTONS.OK_CANCEL, ICON.INFORMATION);
-                        if (info.open() == SWT.OK)
-                            SWTUtils.openURL(Constants.UPDATE_URL);
-                    });
-                }
-
-                return Status.OUTDATED;
+            if ((latestVersionNotified == null) || VersionComparator.lessThan(latestVersionNotified, latestVersion)) {
+                latestVersionNotified = latestVersion;
+                // invoke GUI message in main thread
+                shell.getDisplay().asyncExec(() -> {
+                    Dialog info = new Dialog(shell, Messages.getString("version_check.UpdateTitle"), Messages.formatString("version_check.UpdateText", latestVersion),
+                                                BUTTONS.OK_CANCEL, ICON.INFORMATION);
+                    if (info.open() == SWT.OK)
+                        SWTUtils.openURL(Constants.UPDATE_URL);
+                });
             }
+
+            return Status.OUTDATED;
         } catch (Exception e) {
             log.warn("Error downloading update information: ", e);
             return Status.FAILED;
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.gui.workflow;
+
+// Imports
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parses pending documents in the background while the current one is
+ * being signed, so their document session is ready when their turn comes.
+ *
+ * Parsing is what takes time when a document is opened; preparing the
+ * signature itself only sets up the PDF-AS configuration. A session is only
+ * handed out if the document is unchanged on disk.
+ */
+@Slf4j
+public class DocumentLookAhead {
+
+	/**
+	 * Does the expensive work on a session ahead of time
+	 */
+	interface Loader {
+		void load(DocumentSession session) throws IOException;
+	}
+
+	private final Map<File, DocumentSession> sessions = new LinkedHashMap<>();
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "DocumentLookAhead");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Loader loader;
+
+	/**
+	 * Constructor
+	 */
+	public DocumentLookAhead() {
+		this(DocumentSession::getPDDocument);
+	}
+
+	DocumentLookAhead(Loader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Start loading the next documents in the queue
+	 *
+	 * Sessions of documents that are no longer among the next <code>depth</code>
+	 * documents are closed.
+	 *
+	 * @param upcoming the pending documents, in order
+	 * @param depth the number of documents to load ahead
+	 */
+	public synchronized void schedule(Iterable<File> upcoming, int depth) {
+		List<File> next = new ArrayList<>(depth);
+		for (File document : upcoming) {
+			if (next.size() >= depth)
+				break;
+			next.add(document);
+		}
+
+		Iterator<Map.Entry<File, DocumentSession>> it = this.sessions.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<File, DocumentSession> e = it.next();
+			if (!next.contains(e.getKey())) {
+				dispose(e.getValue());
+				it.remove();
+			}
+		}
+
+		for (File document : next) {
+			if (this.sessions.containsKey(document) || !document.isFile())
+				continue;
+
+			DocumentSession session = new DocumentSession(document);
+			this.executor.execute(() -> {
+				try {
+					log.debug("Loading {} ahead", document);
+					this.loader.load(session);
+				} catch (Exception e) {
+					/* it will be loaded (and fail) again in its turn */
+					log.debug("Loading " + document + " ahead failed", e);
+				}
+			});
+			this.sessions.put(document, session);
+		}
+	}
+
+	/**
+	 * Take the session for a document
+	 *
+	 * If the document is still being loaded, using the session waits for it.
+	 * @param document the document
+	 * @return the session, or null if there is none for the document as it is now
+	 */
+	public synchronized DocumentSession take(File document) {
+		DocumentSession session = this.sessions.remove(document);
+		if ((session != null) && !session.isFor(document)) {
+			log.debug("Discarding outdated look-ahead session for {}", document);
+			dispose(session);
+			return null;
+		}
+		return session;
+	}
+
+	/**
+	 * Get the number of documents currently loaded or being loaded
+	 * @return the number of sessions
+	 */
+	synchronized int size() {
+		return this.sessions.size();
+	}
+
+	/**
+	 * Close all sessions loaded ahead
+	 */
+	public synchronized void clear() {
+		for (DocumentSession session : this.sessions.values()) {
+			dispose(session);
+		}
+		this.sessions.clear();
+	}
+
+	/** closed on the loader thread, after any load still running, rather than blocking the caller */
+	private void dispose(DocumentSession session) {
+		this.executor.execute(session::close);
+	}
+}
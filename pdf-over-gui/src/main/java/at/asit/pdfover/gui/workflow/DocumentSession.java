@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.gui.workflow;
+
+// Imports
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import at.asit.pdfover.commons.Constants;
+import at.asit.pdfover.signer.DocumentSource;
+import at.asit.pdfover.signer.PDFFileDocumentSource;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-document state shared by the workflow states working on one document
+ *
+ * Holds the parsed document, so the placeholder scan and the positioning
+ * screen do not each load the PDF again. Large documents are buffered in a
+ * temporary file rather than in memory.
+ */
+@Slf4j
+public class DocumentSession implements Closeable {
+
+	/** Main memory PDFBox may use for a document before spilling to a temporary file */
+	private static final long MAX_MAIN_MEMORY = 32 * 1024 * 1024;
+
+	private final File file;
+	private final long lastModified;
+	private final long length;
+
+	private PDDocument pdDocument = null;
+
+	private String contentHash = null;
+
+	/**
+	 * @param file the document
+	 */
+	public DocumentSession(File file) {
+		this.file = file;
+		this.lastModified = file.lastModified();
+		this.length = file.length();
+	}
+
+	/**
+	 * @return the document file
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @param other a document file
+	 * @return whether this session is for the given file and it is unchanged on disk
+	 */
+	public boolean isFor(File other) {
+		return this.file.equals(other) &&
+				(this.lastModified == other.lastModified()) &&
+				(this.length == other.length());
+	}
+
+	/**
+	 * Get the parsed document, loading it on first use
+	 *
+	 * The returned document is owned by this session and must not be closed
+	 * by the caller.
+	 * @return the parsed document
+	 * @throws IOException
+	 */
+	public synchronized PDDocument getPDDocument() throws IOException {
+		if (this.pdDocument == null) {
+			File tempDir = new File(Constants.TEMP_DIRECTORY);
+			tempDir.mkdirs();
+			log.debug("Loading {}", this.file);
+			this.pdDocument = PDDocument.load(this.file, MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY).setTempDir(tempDir));
+		}
+		return this.pdDocument;
+	}
+
+	/**
+	 * @return a key identifying the file and its size and modification time, without reading it
+	 */
+	public String getFileKey() {
+		return this.file.getAbsolutePath() + ":" + this.length + ":" + this.lastModified;
+	}
+
+	/**
+	 * Get the SHA-256 of the document contents, computing it on first use
+	 * @return the content hash
+	 * @throws IOException
+	 */
+	public synchronized String getContentHash() throws IOException {
+		if (this.contentHash == null) {
+			try (InputStream is = Files.newInputStream(this.file.toPath())) {
+				this.contentHash = DigestUtils.sha256Hex(is);
+			}
+		}
+		return this.contentHash;
+	}
+
+	/**
+	 * @return the raw document for signing
+	 */
+	public DocumentSource getDocumentSource() {
+		return new PDFFileDocumentSource(this.file);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.pdDocument != null) {
+			try {
+				this.pdDocument.close();
+			} catch (IOException e) {
+				log.warn("Failed to close PDF", e);
+			}
+			this.pdDocument = null;
+		}
+	}
+}
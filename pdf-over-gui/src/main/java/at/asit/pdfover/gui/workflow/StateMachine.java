@@ -17,6 +17,8 @@ package at.asit.pdfover.gui.workflow;
 
 //Imports
 import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
@@ -203,6 +205,49 @@ public class StateMachine {
 		return composite;
 	}
 
+	/** Recycled composites, at most one per class */
+	private final Map<Class<?>, StateComposite> compositePool = new HashMap<>();
+
+	/**
+	 * Get a composite from the pool, or create a new one
+	 *
+	 * A pooled composite is retargeted to the given state. Use for composites
+	 * that are expensive to build and are shown once per document.
+	 *
+	 * @param compositeClass the composite class
+	 * @param style the style used if a new composite has to be created
+	 * @param state the state the composite belongs to
+	 * @return the composite
+	 */
+	public <T extends StateComposite> T obtainComposite(Class<T> compositeClass, int style, State state) {
+		StateComposite pooled = this.compositePool.remove(compositeClass);
+		if (pooled != null && !pooled.isDisposed()) {
+			log.debug("Reusing pooled " + compositeClass.getName());
+			pooled.setState(state);
+			return compositeClass.cast(pooled);
+		}
+		return createComposite(compositeClass, style, state);
+	}
+
+	/**
+	 * Return a composite obtained by {@link #obtainComposite} to the pool
+	 *
+	 * The composite is reset. If the pool already holds a composite of this
+	 * class, it is disposed instead.
+	 *
+	 * @param composite the composite
+	 */
+	public void recycleComposite(StateComposite composite) {
+		if (composite == null || composite.isDisposed())
+			return;
+		if (this.compositePool.containsKey(composite.getClass())) {
+			composite.dispose();
+			return;
+		}
+		composite.reset();
+		this.compositePool.put(composite.getClass(), composite);
+	}
+
 	/**
 	 * Only returns a shell if one was already created ...
 	 *
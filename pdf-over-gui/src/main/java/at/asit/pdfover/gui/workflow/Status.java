@@ -22,6 +22,7 @@ import java.util.Queue;
 
 import at.asit.pdfover.commons.BKUs;
 import at.asit.pdfover.gui.MainWindowBehavior;
+import at.asit.pdfover.gui.bku.mobile.MobileBKUSession;
 import at.asit.pdfover.gui.workflow.states.State;
 import at.asit.pdfover.signer.SignResult;
 import at.asit.pdfover.signer.SignaturePosition;
@@ -33,11 +34,15 @@ public class Status {
 
 	public File document = null;
 	public Queue<File> pendingDocuments = new ArrayDeque<>();
+	public final DocumentLookAhead documentLookAhead = new DocumentLookAhead();
 
 	public SignaturePosition signaturePosition = null;
 
 	public BKUs bku = BKUs.NONE;
 
+	/** the A-Trust session of the current batch of documents */
+	public MobileBKUSession mobileBKUSession = null;
+
 	private State currentState = null;
 
 	private State previousState = null;
@@ -55,6 +60,45 @@ public class Status {
 		this.behavior = new MainWindowBehavior();
 	}
 
+	private DocumentSession documentSession = null;
+
+	/**
+	 * Get the session for the current document, replacing (and closing) the
+	 * previous one if the document changed
+	 * @return the document session, or null if there is no document
+	 */
+	public synchronized DocumentSession getDocumentSession() {
+		if ((this.documentSession != null) && !this.documentSession.isFor(this.document))
+			closeDocumentSession();
+		if ((this.documentSession == null) && (this.document != null)) {
+			this.documentSession = this.documentLookAhead.take(this.document);
+			if (this.documentSession == null)
+				this.documentSession = new DocumentSession(this.document);
+		}
+		return this.documentSession;
+	}
+
+	/**
+	 * End the A-Trust session of the current batch, so its cookies and the
+	 * entered credentials are not used for unrelated documents
+	 */
+	public synchronized void endMobileBKUSession() {
+		if (this.mobileBKUSession != null) {
+			this.mobileBKUSession.reset();
+			this.mobileBKUSession = null;
+		}
+	}
+
+	/**
+	 * Close the current document session, releasing the parsed document
+	 */
+	public synchronized void closeDocumentSession() {
+		if (this.documentSession != null) {
+			this.documentSession.close();
+			this.documentSession = null;
+		}
+	}
+
 	public State getCurrentState() {
 		return this.currentState;
 	}
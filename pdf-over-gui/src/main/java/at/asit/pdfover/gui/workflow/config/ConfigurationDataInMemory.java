@@ -151,6 +151,9 @@ public class ConfigurationDataInMemory {
 	/** Whether to skip the output state */
 	public boolean skipFinish = false;
 
+	/** Number of parallel workers for headless batch signing (0: one per processor) */
+	public int batchWorkers = 0;
+
 	/** Whether to use an existing signature marker. */
 	protected boolean useMarker = false;
 	public boolean getUseMarker() { return this.useMarker; }
@@ -179,6 +182,12 @@ public class ConfigurationDataInMemory {
 
 	public @NonNull String saveFilePostFix = Constants.DEFAULT_POSTFIX;
 
+	/** signed documents larger than this (in bytes) are written to a temporary file */
+	public long outputSpillThreshold = Constants.DEFAULT_OUTPUT_SPILL_THRESHOLD;
+
+	/** number of pending documents to prepare ahead of the current one */
+	public int prepareLookAheadDepth = Constants.DEFAULT_PREPARE_LOOKAHEAD_DEPTH;
+
 	/** whether fido2 authentication should be selected by default */
 	public boolean fido2ByDefault = false;
 
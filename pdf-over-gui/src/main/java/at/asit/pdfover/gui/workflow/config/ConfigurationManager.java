@@ -145,6 +145,18 @@ public class ConfigurationManager {
 		else
 			setSaveFilePostFixPersistent(postFix);
 
+		try {
+			String strProp = diskConfig.getProperty(Constants.CFG_OUTPUT_SPILL_THRESHOLD);
+			if (strProp != null)
+				setOutputSpillThresholdPersistent(Long.parseLong(strProp.trim()));
+		} catch (NumberFormatException e) { log.info("Invalid value for CFG_OUTPUT_SPILL_THRESHOLD ignored.", e); }
+
+		try {
+			String strProp = diskConfig.getProperty(Constants.CFG_PREPARE_LOOKAHEAD_DEPTH);
+			if (strProp != null)
+				setPrepareLookAheadDepthPersistent(Integer.parseInt(strProp.trim()));
+		} catch (NumberFormatException e) { log.info("Invalid value for CFG_PREPARE_LOOKAHEAD_DEPTH ignored.", e); }
+
 		String localeString = diskConfig.getProperty(Constants.CFG_LOCALE);
 
 		Locale targetLocale = LocaleSerializer.parseFromString(localeString);
@@ -302,6 +314,10 @@ public class ConfigurationManager {
 			setProperty(props, Constants.CFG_MOBILE_PASSWORD_REMEMBER, Constants.TRUE);
 		setPropertyIfNotNull(props, Constants.CFG_OUTPUT_FOLDER, getDefaultOutputFolderPersistent());
 		setProperty(props, Constants.CFG_POSTFIX, getSaveFilePostFix());
+		if (getOutputSpillThreshold() != Constants.DEFAULT_OUTPUT_SPILL_THRESHOLD)
+			setProperty(props, Constants.CFG_OUTPUT_SPILL_THRESHOLD, Long.toString(getOutputSpillThreshold()));
+		if (getPrepareLookAheadDepth() != Constants.DEFAULT_PREPARE_LOOKAHEAD_DEPTH)
+			setProperty(props, Constants.CFG_PREPARE_LOOKAHEAD_DEPTH, Integer.toString(getPrepareLookAheadDepth()));
 
 		Point size = this.configuration.mainWindowSize;
 		setProperty(props, Constants.CFG_MAINWINDOW_SIZE, size.x + "," + size.y);
@@ -863,6 +879,14 @@ public class ConfigurationManager {
 		this.configurationOverlay.skipFinish = skipFinish;
 	}
 
+	public int getBatchWorkers() {
+		return this.configurationOverlay.batchWorkers;
+	}
+
+	public void setBatchWorkersOverlay(int workers) {
+		this.configurationOverlay.batchWorkers = workers;
+	}
+
 	public boolean getUseSignatureFields() {
 		return this.configuration.getUseSignatureFields();
 	}
@@ -889,6 +913,22 @@ public class ConfigurationManager {
 		return this.configuration.saveFilePostFix;
 	}
 
+	public void setOutputSpillThresholdPersistent(long threshold) {
+		this.configuration.outputSpillThreshold = Math.max(0, threshold);
+	}
+
+	public long getOutputSpillThreshold() {
+		return this.configuration.outputSpillThreshold;
+	}
+
+	public void setPrepareLookAheadDepthPersistent(int depth) {
+		this.configuration.prepareLookAheadDepth = Math.max(0, depth);
+	}
+
+	public int getPrepareLookAheadDepth() {
+		return this.configuration.prepareLookAheadDepth;
+	}
+
 	public @NonNull Profile getSignatureProfile() {
 		return fallThroughOnNull(this.configuration.signatureProfile, Profile.SIGNATURBLOCK_SMALL);
 	}
@@ -22,6 +22,7 @@ import org.eclipse.swt.SWT;
 
 import at.asit.pdfover.gui.MainWindow.Buttons;
 import at.asit.pdfover.gui.bku.LocalBKUConnector;
+import at.asit.pdfover.gui.bku.MobileBKUConnector;
 import at.asit.pdfover.commons.BKUs;
 import at.asit.pdfover.gui.MainWindowBehavior;
 import at.asit.pdfover.gui.composites.BKUSelectionComposite;
@@ -89,6 +90,8 @@ public class BKUSelectionState extends State {
 				return;
 			}
 		}
+		if (status.bku == BKUs.MOBILE)
+			MobileBKUConnector.warmUp();
 		this.setNextState(new PrepareSigningState(getStateMachine()));
 	}
 
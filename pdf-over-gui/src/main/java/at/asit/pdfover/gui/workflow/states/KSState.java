@@ -35,6 +35,7 @@ import at.asit.pdfover.gui.workflow.Status;
 import at.asit.pdfover.gui.workflow.config.ConfigurationManager;
 import at.asit.pdfover.gui.workflow.config.ConfigurationDataInMemory.KeyStorePassStorageType;
 import at.asit.pdfover.signer.SignatureException;
+import at.asit.pdfover.signer.pdfas.PdfAs4KeystoreSignerCache;
 import at.asit.pdfover.signer.pdfas.PdfAs4SigningState;
 import lombok.extern.slf4j.Slf4j;
 
@@ -88,6 +89,16 @@ public class KSState extends State {
 				return;
 			}
 			String type = config.getKeyStoreType();
+
+			/* skip unlocking the keystore again if we already hold a signer for these settings */
+			if (PdfAs4KeystoreSignerCache.contains(file, config.getKeyStoreAlias(),
+					config.getKeyStoreStorePass(), config.getKeyStoreKeyPass(), type)) {
+				signingState.setKeystoreSigner(file, config.getKeyStoreAlias(),
+						config.getKeyStoreStorePass(), config.getKeyStoreKeyPass(), type);
+				this.setNextState(new at.asit.pdfover.gui.workflow.states.SigningState(getStateMachine()));
+				return;
+			}
+
 			KeyStore keyStore = null;
 			String storePass = config.getKeyStoreStorePass();
 			while (keyStore == null) {
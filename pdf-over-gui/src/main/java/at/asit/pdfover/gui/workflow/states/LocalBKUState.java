@@ -16,20 +16,21 @@
 package at.asit.pdfover.gui.workflow.states;
 
 // Imports
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.HttpException;
-import org.apache.commons.httpclient.HttpMethod;
-import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.methods.PostMethod;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hc.client5.http.HttpResponseException;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.eclipse.swt.SWT;
 
-import at.asit.pdfover.commons.Constants;
 import at.asit.pdfover.gui.MainWindow.Buttons;
 import at.asit.pdfover.gui.MainWindowBehavior;
-import at.asit.pdfover.gui.bku.BKUHelper;
 import at.asit.pdfover.gui.bku.LocalBKUConnector;
 import at.asit.pdfover.gui.controls.Dialog.BUTTONS;
 import at.asit.pdfover.gui.controls.ErrorDialog;
+import at.asit.pdfover.gui.utils.HttpClientUtils;
 import at.asit.pdfover.commons.Messages;
 import at.asit.pdfover.gui.workflow.StateMachine;
 import at.asit.pdfover.gui.workflow.Status;
@@ -98,24 +99,22 @@ public class LocalBKUState extends State {
 		public void run() {
 			try {
 
-				HttpClient client = (HttpClient) BKUHelper.getHttpClient();
-
-				PostMethod method = new PostMethod(Constants.LOCAL_BKU_URL);
-
-				String sl_request = NULL_OPERATION_REQUEST;
-				method.addParameter("XMLRequest", sl_request);
-				int returnCode = client.executeMethod(method);
-
-				if (returnCode != HttpStatus.SC_OK) {
-					this.state.threadException = new HttpException(
-							method.getResponseBodyAsString());
-				} else {
-					String server = getResponseHeader(method, BKU_RESPONSE_HEADER_SERVER);
-					if ((server != null) && (server.contains("trustDeskbasic") || server.contains("asignSecurityLayer")))
-						LocalBKUState.this.useBase64Request = true;
-
-					this.signingState.signatureResponse = method.getResponseBodyAsString();
-					this.signingState.useBase64Request = LocalBKUState.this.useBase64Request;
+				/* same pooled client as the connector, so signing reuses this connection */
+				try (ClassicHttpResponse response = HttpClientUtils.getLocalClient().executeOpen(null,
+						LocalBKUConnector.buildRequest(LocalBKUConnector.getDefaultLocalBKUURL(), NULL_OPERATION_REQUEST, null), null)) {
+					String body = (response.getEntity() != null) ? EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8) : null;
+
+					if (response.getCode() != HttpStatus.SC_OK) {
+						this.state.threadException = new HttpResponseException(response.getCode(),
+								(body != null) ? body : response.getReasonPhrase());
+					} else {
+						String server = getResponseHeader(response, BKU_RESPONSE_HEADER_SERVER);
+						if ((server != null) && (server.contains("trustDeskbasic") || server.contains("asignSecurityLayer")))
+							LocalBKUState.this.useBase64Request = true;
+
+						this.signingState.signatureResponse = body;
+						this.signingState.useBase64Request = LocalBKUState.this.useBase64Request;
+					}
 				}
 			} catch (Exception e) {
 				log.error("SignLocalBKUThread: ", e);
@@ -128,14 +127,15 @@ public class LocalBKUState extends State {
 
 		/**
 		 * Returns the value corresponding to the given header name
-		 * @param method the HTTP method
+		 * @param response the HTTP response
 		 * @param headerName the header name
 		 * @return the header value (or null if not found)
 		 */
-		private String getResponseHeader(HttpMethod method, String headerName) {
-			if (method.getResponseHeader(headerName) == null)
+		private String getResponseHeader(ClassicHttpResponse response, String headerName) {
+			Header header = response.getFirstHeader(headerName);
+			if (header == null)
 				return null;
-			return method.getResponseHeader(headerName).getValue();
+			return header.getValue();
 		}
 	}
 
@@ -30,7 +30,6 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.eclipse.swt.SWT;
@@ -40,6 +39,7 @@ import org.eclipse.swt.widgets.Shell;
 import at.asit.pdfover.gui.MainWindow.Buttons;
 import at.asit.pdfover.gui.MainWindowBehavior;
 import at.asit.pdfover.gui.bku.MobileBKUConnector;
+import at.asit.pdfover.gui.bku.mobile.MobileBKUSession;
 import at.asit.pdfover.gui.composites.WaitingComposite;
 import at.asit.pdfover.gui.composites.mobilebku.MobileBKUEnterNumberComposite;
 import at.asit.pdfover.gui.composites.mobilebku.MobileBKUEnterTANComposite;
@@ -54,6 +54,7 @@ import at.asit.pdfover.gui.controls.Dialog;
 import at.asit.pdfover.gui.controls.ErrorDialog;
 import at.asit.pdfover.commons.Messages;
 import at.asit.pdfover.gui.workflow.StateMachine;
+import at.asit.pdfover.gui.workflow.Status;
 
 /**
  * Logical state for performing the BKU Request to the A-Trust Mobile BKU
@@ -333,8 +334,8 @@ public class MobileBKUState extends State {
 		public final @NonNull ResultType type;
 		public final String smsTan;
 
-		private SMSTanResult(String smsTan) { this.type = ResultType.SMSTAN; this.smsTan = smsTan; }
-		private SMSTanResult(@NonNull ResultType type) { this.type = type; this.smsTan = null; }
+		public SMSTanResult(String smsTan) { this.type = ResultType.SMSTAN; this.smsTan = smsTan; }
+		public SMSTanResult(@NonNull ResultType type) { this.type = type; this.smsTan = null; }
 	}
 
 	public @NonNull SMSTanResult getSMSTanFromUser(final @NonNull String referenceValue, final URI signatureDataURI, final boolean showFido2, final String errorMessage) throws UserCancelledException {
@@ -366,10 +367,8 @@ public class MobileBKUState extends State {
 	 * this method will return immediately */
 	public void showQRCode(final @NonNull String referenceValue, @NonNull URI qrCodeURI, URI signatureDataURI, final boolean showSmsTan, final boolean showFido2, final String errorMessage) {
 		byte[] qrCode;
-		try (final CloseableHttpClient httpClient = HttpClientUtils.builderWithSettings().build()) {
-			try (final CloseableHttpResponse response = httpClient.execute(new HttpGet(qrCodeURI))) {
-				qrCode = EntityUtils.toByteArray(response.getEntity());
-			}
+		try (final CloseableHttpResponse response = HttpClientUtils.getSharedClient().execute(new HttpGet(qrCodeURI))) {
+			qrCode = EntityUtils.toByteArray(response.getEntity());
 		} catch (IOException e) {
 			log.warn("Failed to load QR code.");
 			qrCode = null;
@@ -586,7 +585,11 @@ public class MobileBKUState extends State {
 	public void run() {
 		this.signingState = getStateMachine().status.signingState;
 
-		this.signingState.bkuConnector = new MobileBKUConnector(this);
+		/* documents of the same batch are signed in the same A-Trust session */
+		Status status = getStateMachine().status;
+		if (status.mobileBKUSession == null)
+			status.mobileBKUSession = new MobileBKUSession();
+		this.signingState.bkuConnector = new MobileBKUConnector(this, status.mobileBKUSession);
 		this.signingState.useBase64Request = false;
 
 		if (this.threadException != null) {
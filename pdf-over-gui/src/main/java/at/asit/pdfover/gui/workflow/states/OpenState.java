@@ -18,9 +18,15 @@ package at.asit.pdfover.gui.workflow.states;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
-import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
 import at.gv.egiz.pdfas.lib.impl.pdfbox2.placeholder.SignatureFieldsAndPlaceHolderExtractor;
 
@@ -36,9 +42,11 @@ import at.asit.pdfover.gui.bku.LocalBKUConnector;
 import at.asit.pdfover.gui.MainWindowBehavior;
 import at.asit.pdfover.gui.PlaceholderSelectionGui;
 import at.asit.pdfover.gui.composites.DataSourceSelectComposite;
+import at.asit.pdfover.gui.composites.WaitingComposite;
 import at.asit.pdfover.gui.utils.SWTUtils;
 import at.asit.pdfover.commons.Messages;
 import at.asit.pdfover.commons.Profile;
+import at.asit.pdfover.gui.workflow.DocumentSession;
 import at.asit.pdfover.gui.workflow.StateMachine;
 import at.asit.pdfover.gui.workflow.Status;
 import at.asit.pdfover.gui.workflow.config.ConfigurationManager;
@@ -75,11 +83,177 @@ public class OpenState extends State {
 		return this.selectionComposite;
 	}
 
+	/**
+	 * Result of a placeholder scan
+	 */
+	private static final class PlaceholderScanResult {
+		/** empty signature fields found, if signature fields were scanned */
+		final List<String> fields;
+		/** next unused QR code placeholder, if markers were scanned */
+		final SignaturePlaceholderData placeholderData;
+
+		PlaceholderScanResult(List<String> fields, SignaturePlaceholderData placeholderData) {
+			this.fields = fields;
+			this.placeholderData = placeholderData;
+		}
+	}
+
+	/** Scan results of recently opened documents, keyed by file and by content hash, and scan options */
+	private static final int SCAN_CACHE_SIZE = 32;
+	private static final Map<String, PlaceholderScanResult> scanCache = Collections.synchronizedMap(
+			new LinkedHashMap<String, PlaceholderScanResult>(SCAN_CACHE_SIZE, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, PlaceholderScanResult> eldest) {
+					return size() > SCAN_CACHE_SIZE;
+				}
+			});
+
+	private static final ExecutorService scanExecutor = Executors.newSingleThreadExecutor((r) -> {
+		Thread t = new Thread(r, "PlaceholderScan");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * Scans a document for signature placeholders off the UI thread
+	 *
+	 * The scan uses the document session's parsed document, which the UI
+	 * leaves alone until the scan is done. A cancelled scan is not
+	 * interrupted, as that would close the file channels of the shared
+	 * document; it stops at the next check and its result is dropped.
+	 */
+	private static final class PlaceholderScanThread implements Runnable {
+
+		private final DocumentSession session;
+		private final boolean useSignatureFields;
+		private final boolean useMarker;
+		private final BiConsumer<PlaceholderScanThread, PlaceholderScanResult> onFinished;
+		private volatile boolean cancelled = false;
+
+		public PlaceholderScanThread(DocumentSession session, boolean useSignatureFields, boolean useMarker,
+				BiConsumer<PlaceholderScanThread, PlaceholderScanResult> onFinished) {
+			this.session = session;
+			this.useSignatureFields = useSignatureFields;
+			this.useMarker = useMarker;
+			this.onFinished = onFinished;
+		}
+
+		void cancel() {
+			this.cancelled = true;
+		}
+
+		private void checkCancelled() throws InterruptedException {
+			if (this.cancelled)
+				throw new InterruptedException();
+		}
+
+		private PlaceholderScanResult scan() throws Exception {
+			if (!this.useSignatureFields && !this.useMarker)
+				return new PlaceholderScanResult(null, null);
+
+			/* unchanged files are found without reading them; copies of a file by their content */
+			String options = ":" + this.useSignatureFields + ":" + this.useMarker;
+			String fileKey = this.session.getFileKey() + options;
+			PlaceholderScanResult result = scanCache.get(fileKey);
+			if (result == null) {
+				checkCancelled();
+				result = scanCache.get(this.session.getContentHash() + options);
+				if (result != null)
+					scanCache.put(fileKey, result);
+			}
+			if (result != null) {
+				log.debug("Using cached placeholder scan result for {}", this.session.getFile());
+				return result;
+			}
+
+			checkCancelled();
+			PDDocument pddocument = this.session.getPDDocument();
+			checkCancelled();
+			if (this.useSignatureFields)
+				result = new PlaceholderScanResult(
+						SignatureFieldsAndPlaceHolderExtractor.findEmptySignatureFields(pddocument), null);
+			else
+				result = new PlaceholderScanResult(null,
+						SignatureFieldsAndPlaceHolderExtractor.getNextUnusedSignaturePlaceHolder(pddocument));
+			checkCancelled();
+			scanCache.put(fileKey, result);
+			scanCache.put(this.session.getContentHash() + options, result);
+			return result;
+		}
+
+		@Override
+		public void run() {
+			PlaceholderScanResult result;
+			try {
+				result = scan();
+			} catch (InterruptedException e) {
+				log.debug("Placeholder scan of {} cancelled", this.session.getFile());
+				return;
+			} catch (Exception e) {
+				// fail silently - just proceed with the usual process
+				log.debug("Placeholder scan failed", e);
+				result = new PlaceholderScanResult(null, null);
+			}
+			this.onFinished.accept(this, result);
+		}
+	}
+
+	private boolean initialized = false;
+
+	/** the document the current scan belongs to */
+	private File scannedDocument = null;
+	private PlaceholderScanThread currentScan = null;
+	private Future<?> scanTask = null;
+	private volatile PlaceholderScanResult scanResult = null;
+	private volatile boolean scanCancelled = false;
+
+	private WaitingComposite waitingComposite = null;
+
+	private WaitingComposite getWaitingComposite() {
+		if (this.waitingComposite == null) {
+			this.waitingComposite =
+					getStateMachine().createComposite(WaitingComposite.class, SWT.RESIZE, this);
+			this.waitingComposite.setMessage("waiting.placeholderScan");
+			this.waitingComposite.setCancelHandler(() -> {
+				this.scanCancelled = true;
+				this.updateStateMachine();
+			});
+		}
+		return this.waitingComposite;
+	}
+
+	/**
+	 * Called on the scan thread; results of scans that were reset in the
+	 * meantime are dropped, the state machine may already have moved on
+	 */
+	private synchronized void scanFinished(PlaceholderScanThread scan, PlaceholderScanResult result) {
+		if (scan != this.currentScan) {
+			log.debug("Ignoring result of an abandoned placeholder scan");
+			return;
+		}
+		this.scanResult = result;
+		updateStateMachine();
+	}
+
+	private synchronized void resetScan() {
+		if (this.currentScan != null)
+			this.currentScan.cancel();
+		if (this.scanTask != null)
+			this.scanTask.cancel(false);
+		this.scanTask = null;
+		this.currentScan = null;
+		this.scanResult = null;
+		this.scanCancelled = false;
+		this.scannedDocument = null;
+	}
+
 	@Override
 	public void run() {
 		ConfigurationManager config = getStateMachine().configProvider;
 		Status status = getStateMachine().status;
-		if (!(status.getPreviousState() instanceof PrepareConfigurationState)
+		if (!this.initialized && !(status.getPreviousState() instanceof PrepareConfigurationState)
 				&& !(status.getPreviousState() instanceof OpenState)) {
 			status.bku = config.getDefaultBKU();
 			
@@ -88,6 +262,9 @@ public class OpenState extends State {
 			} else {
 				status.document = null;
 				status.pendingDocuments.clear();
+				status.documentLookAhead.clear();
+				status.closeDocumentSession();
+				status.endMobileBKUSession();
 			}
 
 			status.signaturePosition = ((config.getSignatureProfile() == Profile.INVISIBLE) || config.getAutoPositionSignature()) ? (new SignaturePosition()) : null;
@@ -95,11 +272,13 @@ public class OpenState extends State {
 			/* ensure that files get closed */
 			status.getPreviousState().cleanUp();
 		}
+		this.initialized = true;
 
 		/* force static initialization and start polling */
 		LocalBKUConnector.IsAvailable();
 
 		if (status.document == null) {
+			resetScan();
 			DataSourceSelectComposite selection = this.getSelectionComposite();
 
 			getStateMachine().display(selection);
@@ -108,6 +287,8 @@ public class OpenState extends State {
 			List<File> selectedFiles = selection.getSelected();
 			status.document = null;
 			status.pendingDocuments.clear();
+			status.documentLookAhead.clear();
+			status.endMobileBKUSession();
 			for (File file : selectedFiles) {
 				if (status.document == null)
 					status.document = file;
@@ -127,105 +308,127 @@ public class OpenState extends State {
 		// scan for signature placeholders
 		// - see if we want to scan for placeholders in the settings
 		if (config.getEnablePlaceholderUsage()) {
-			try (PDDocument pddocument = PDDocument.load(getStateMachine().status.document)) {
-				// - scan for placeholders
-				boolean useSignatureFields = config.getUseSignatureFields();
-				boolean useMarker = config.getUseMarker();
-				log.debug("Placeholder usage enabled. Signature fields: {}, QR Markers: {}", useSignatureFields, useMarker);
-				//first check the signature fields placeholder
-				if (useSignatureFields) {
-
-					List<String> fields = SignatureFieldsAndPlaceHolderExtractor.findEmptySignatureFields(pddocument);
-
-					if (fields.size() > 0) {
-						while (true)
-						{
-							// create a dialog with ok and cancel buttons and a question
-							// icon
-							MessageBox dialog = new MessageBox(getStateMachine().getMainShell(),
-									SWT.ICON_QUESTION | SWT.YES | SWT.NO | SWT.CANCEL);
-							SWTUtils.setLocalizedText(dialog, "dataSourceSelection.usePlaceholderTitle");
-							dialog.setMessage(Messages.getString("dataSourceSelection.usePlaceholderText"));
-
-							// open dialog and await user selection
-							int result = dialog.open();
-							if (result == SWT.YES) {
-
-								if (fields.size() == 1) {
-									addPlaceholderSelectionToConfig(fields.get(0));
-									this.setNextState(new BKUSelectionState(getStateMachine()));
-									return;
-
-								} else if (fields.size() > 1) {
-
-									PlaceholderSelectionGui gui = new PlaceholderSelectionGui(
-											getStateMachine().getMainShell(), 65570, "text",
-											"select the fields", fields);
-									int res = gui.open();
-									if (res != -1) {
-										status.searchForPlaceholderSignature = true;
-										addPlaceholderSelectionToConfig(fields.get(res));
-										this.setNextState(new BKUSelectionState(getStateMachine()));
-									}
-									else
-										continue;
-								}
+			if (!status.document.equals(this.scannedDocument))
+				resetScan();
+
+			if (this.scanCancelled) {
+				log.debug("Placeholder scan cancelled");
+				status.searchForPlaceholderSignature = false;
+				resetScan();
+				this.setNextState(new PositioningState(getStateMachine()));
+				return;
+			}
 
-							} else if (result == SWT.NO) {
-								status.searchForPlaceholderSignature = false;
-							} else {
-								status.document = null;
-								return;
-							}
-							break;
-						}
+			// - scan for placeholders
+			boolean useSignatureFields = config.getUseSignatureFields();
+			boolean useMarker = config.getUseMarker();
+
+			if (this.scanResult == null) {
+				if (this.scanTask == null) {
+					log.debug("Placeholder usage enabled. Signature fields: {}, QR Markers: {}", useSignatureFields, useMarker);
+					PlaceholderScanThread scan = new PlaceholderScanThread(status.getDocumentSession(),
+							useSignatureFields, useMarker, this::scanFinished);
+					synchronized (this) {
+						this.scannedDocument = status.document;
+						this.currentScan = scan;
+						this.scanTask = scanExecutor.submit(scan);
 					}
-					// second check if qr code placeholder search is enabled
-				} else if (useMarker) {
+				}
+				getStateMachine().display(getWaitingComposite());
+				return;
+			}
 
-					SignaturePlaceholderData signaturePlaceholderData = SignatureFieldsAndPlaceHolderExtractor.getNextUnusedSignaturePlaceHolder(pddocument);
+			PlaceholderScanResult result = this.scanResult;
+			resetScan();
 
-					if (null != signaturePlaceholderData) {
+			//first check the signature fields placeholder
+			if (useSignatureFields) {
 
-						// create a dialog with ok and cancel buttons and a question icon
+				List<String> fields = result.fields;
+
+				if (fields != null && fields.size() > 0) {
+					while (true)
+					{
+						// create a dialog with ok and cancel buttons and a question
+						// icon
 						MessageBox dialog = new MessageBox(getStateMachine().getMainShell(),
 								SWT.ICON_QUESTION | SWT.YES | SWT.NO | SWT.CANCEL);
 						SWTUtils.setLocalizedText(dialog, "dataSourceSelection.usePlaceholderTitle");
 						dialog.setMessage(Messages.getString("dataSourceSelection.usePlaceholderText"));
 
 						// open dialog and await user selection
-						int result = dialog.open();
-						if (result == SWT.YES) {
-
-							// if the user chooses to use the signature placeholder
-							// - fill the position information so that we skip to
-							// the
-							// next stages without breaking stuff
-							status.signaturePosition = new SignaturePosition(
-									signaturePlaceholderData.getTablePos().getPosX(),
-									signaturePlaceholderData.getTablePos().getPosY(),
-									signaturePlaceholderData.getTablePos().getPage());
-
-							status.searchForPlaceholderSignature = true;
-							status.placeholderId = signaturePlaceholderData.getId();
-
-						} else if (result == SWT.NO) {
+						int dialogResult = dialog.open();
+						if (dialogResult == SWT.YES) {
+
+							if (fields.size() == 1) {
+								addPlaceholderSelectionToConfig(fields.get(0));
+								this.setNextState(new BKUSelectionState(getStateMachine()));
+								return;
+
+							} else if (fields.size() > 1) {
+
+								PlaceholderSelectionGui gui = new PlaceholderSelectionGui(
+										getStateMachine().getMainShell(), 65570, "text",
+										"select the fields", fields);
+								int res = gui.open();
+								if (res != -1) {
+									status.searchForPlaceholderSignature = true;
+									addPlaceholderSelectionToConfig(fields.get(res));
+									this.setNextState(new BKUSelectionState(getStateMachine()));
+								}
+								else
+									continue;
+							}
+
+						} else if (dialogResult == SWT.NO) {
 							status.searchForPlaceholderSignature = false;
 						} else {
 							status.document = null;
 							return;
 						}
-						// TODO: why does this use a different logic (via PositioningState) than the signature placeholders?
+						break;
 					}
-
-				} else {
-					// Do nothing
+				}
+				// second check if qr code placeholder search is enabled
+			} else if (useMarker) {
+
+				SignaturePlaceholderData signaturePlaceholderData = result.placeholderData;
+
+				if (null != signaturePlaceholderData) {
+
+					// create a dialog with ok and cancel buttons and a question icon
+					MessageBox dialog = new MessageBox(getStateMachine().getMainShell(),
+							SWT.ICON_QUESTION | SWT.YES | SWT.NO | SWT.CANCEL);
+					SWTUtils.setLocalizedText(dialog, "dataSourceSelection.usePlaceholderTitle");
+					dialog.setMessage(Messages.getString("dataSourceSelection.usePlaceholderText"));
+
+					// open dialog and await user selection
+					int dialogResult = dialog.open();
+					if (dialogResult == SWT.YES) {
+
+						// if the user chooses to use the signature placeholder
+						// - fill the position information so that we skip to
+						// the
+						// next stages without breaking stuff
+						status.signaturePosition = new SignaturePosition(
+								signaturePlaceholderData.getTablePos().getPosX(),
+								signaturePlaceholderData.getTablePos().getPosY(),
+								signaturePlaceholderData.getTablePos().getPage());
+
+						status.searchForPlaceholderSignature = true;
+						status.placeholderId = signaturePlaceholderData.getId();
+
+					} else if (dialogResult == SWT.NO) {
+						status.searchForPlaceholderSignature = false;
+					} else {
+						status.document = null;
+						return;
+					}
+					// TODO: why does this use a different logic (via PositioningState) than the signature placeholders?
 				}
 
-			} catch (IOException e) {
-				// fail silently. In case we got here no dialog has been shown.
-				// Just
-				// proceed with the usual process.
+			} else {
+				// Do nothing
 			}
 		}
 
@@ -264,8 +467,11 @@ public class OpenState extends State {
 	 */
 	@Override
 	public void cleanUp() {
+		resetScan();
 		if (this.selectionComposite != null)
 			this.selectionComposite.dispose();
+		if (this.waitingComposite != null)
+			this.waitingComposite.dispose();
 	}
 
 	/* (non-Javadoc)
@@ -30,6 +30,7 @@ import at.asit.pdfover.commons.Messages;
 import at.asit.pdfover.gui.workflow.StateMachine;
 import at.asit.pdfover.gui.workflow.Status;
 import at.asit.pdfover.gui.workflow.config.ConfigurationManager;
+import at.asit.pdfover.signer.TemporaryFileDocumentSource;
 import lombok.NonNull;
 
 /**
@@ -54,7 +55,7 @@ public class OutputState extends State {
 			ConfigurationManager config = getStateMachine().configProvider;
 			Status status = getStateMachine().status;
 
-			File tmpDir = new File(Constants.CONFIG_DIRECTORY + File.separator + "tmp");
+			File tmpDir = new File(Constants.TEMP_DIRECTORY);
 
 			if(!tmpDir.exists()) {
 				tmpDir.mkdir();
@@ -67,8 +68,12 @@ public class OutputState extends State {
 
 			this.outputComposite.setSignedDocument(status.signResult.getSignedDocument());
 
+			// Release the input document before the output possibly replaces it
+			status.closeDocumentSession();
+
 			// Save signed document
 			this.outputComposite.saveDocument();
+			status.signResult.setSignedDocument(this.outputComposite.getSignedDocument());
 		}
 
 		return this.outputComposite;
@@ -96,6 +101,8 @@ public class OutputState extends State {
 				this.setNextState(new OpenState(getStateMachine()));
 				return;
 			}
+			/* the batch is done */
+			getStateMachine().status.endMobileBKUSession();
 			if (getConfig().getSkipFinish())
 				getStateMachine().exit();
 		}
@@ -110,8 +117,13 @@ public class OutputState extends State {
 	 */
 	@Override
 	public void cleanUp() {
+		Status status = getStateMachine().status;
 
-		getStateMachine().status.signResult = null;
+		/* delete the signed document's temporary file if it was never saved */
+		if ((status.signResult != null) && (status.signResult.getSignedDocument() instanceof TemporaryFileDocumentSource))
+			((TemporaryFileDocumentSource) status.signResult.getSignedDocument()).dispose();
+		status.signResult = null;
+		status.closeDocumentSession();
 
 		if (this.outputComposite != null)
 			this.outputComposite.dispose();
@@ -25,9 +25,11 @@ import org.eclipse.swt.SWT;
 
 import at.asit.pdfover.gui.MainWindow.Buttons;
 import at.asit.pdfover.gui.MainWindowBehavior;
+import at.asit.pdfover.gui.bku.MobileBKUConnector;
 import at.asit.pdfover.gui.composites.PositioningComposite;
 import at.asit.pdfover.gui.controls.Dialog.BUTTONS;
 import at.asit.pdfover.gui.controls.ErrorDialog;
+import at.asit.pdfover.commons.BKUs;
 import at.asit.pdfover.commons.Messages;
 import at.asit.pdfover.gui.workflow.StateMachine;
 import at.asit.pdfover.gui.workflow.Status;
@@ -60,12 +62,8 @@ public class PositioningState extends State {
 	private PDDocument document = null;
 
 	private void closePDFDocument() {
-
-		if (this.document != null)
-		{
-			try { this.document.close(); } catch (IOException e) { log.warn("Failed to close PDF", e); }
-			this.document = null;
-		}
+		/* the document itself is owned by the document session */
+		this.document = null;
 		this.loadedDocumentPath = null;
 	}
 
@@ -75,7 +73,7 @@ public class PositioningState extends State {
 		PDDocument pdf = null;
 		try
 		{
-			pdf = PDDocument.load(documentPath);
+			pdf = getStateMachine().status.getDocumentSession().getPDDocument();
 			if (pdf.getNumberOfPages() > 0)
 				pdf.getPage(0);
 			else
@@ -95,7 +93,7 @@ public class PositioningState extends State {
 		StateMachine stateMachine = getStateMachine();
 		if (this.positionComposite == null) {
 			this.positionComposite =
-					stateMachine.createComposite(PositioningComposite.class, SWT.RESIZE, this);
+					stateMachine.obtainComposite(PositioningComposite.class, SWT.RESIZE, this);
 			log.debug("Displaying " +  stateMachine.status.document);
 			this.positionComposite.displayDocument(document);
 		}
@@ -115,9 +113,11 @@ public class PositioningState extends State {
 		param.enablePDFACompat = config.getSignaturePdfACompat();
 		param.targetLogoSize = Math.min(120.0, config.getLogoOnlyTargetSize()); // TODO WORKAROUND FOR #117
 
+		/* the preview may arrive after this state was cleaned up and the composite recycled */
+		final PositioningComposite composite = this.positionComposite;
 		PdfAs4SignaturePlaceholder.For(param, (p) -> {
-			if (p.hasImage())
-				this.positionComposite.setPlaceholder(p.getAWTImage());
+			if (p.hasImage() && (composite != null) && (composite == this.positionComposite))
+				composite.setPlaceholder(p.getAWTImage());
 		});
 
 		if (this.previousPosition != null && !this.previousPosition.useAutoPositioning())
@@ -141,6 +141,10 @@ public class PositioningState extends State {
 			status.signaturePosition = null;
 		}
 
+		/* connect while the user is busy positioning the signature */
+		if (status.bku == BKUs.MOBILE)
+			MobileBKUConnector.warmUp();
+
 		if ((this.document == null) ||
 				(this.loadedDocumentPath != getStateMachine().status.document)) {
 			log.debug("Checking PDF document for encryption");
@@ -198,8 +202,9 @@ public class PositioningState extends State {
 	 */
 	@Override
 	public void cleanUp() {
-		if (this.positionComposite != null)
-			this.positionComposite.dispose();
+		/* keep the composite and its embedded AWT frame for the next document */
+		getStateMachine().recycleComposite(this.positionComposite);
+		this.positionComposite = null;
 		closePDFDocument();
 	}
 
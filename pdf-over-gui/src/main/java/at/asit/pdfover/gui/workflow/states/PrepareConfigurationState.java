@@ -36,6 +36,7 @@ import at.asit.pdfover.gui.controls.Dialog.BUTTONS;
 import at.asit.pdfover.gui.controls.ErrorDialog;
 import at.asit.pdfover.gui.exceptions.InitializationException;
 import at.asit.pdfover.commons.Messages;
+import at.asit.pdfover.gui.utils.HttpClientUtils;
 import at.asit.pdfover.gui.utils.UpdateCheckManager;
 import at.asit.pdfover.gui.utils.VersionComparator;
 import at.asit.pdfover.gui.utils.Zipper;
@@ -105,7 +106,7 @@ public class PrepareConfigurationState extends State {
 		}
 	}
 
-	private void ensurePdfOverConfigExists() throws InitializationException {
+	private static void ensurePdfOverConfigExists() throws InitializationException {
 		try {
 			File pdfOverConfig = new File(Constants.CONFIG_DIRECTORY + File.separator + Constants.DEFAULT_CONFIG_FILENAME);
 			if (!pdfOverConfig.exists())
@@ -116,8 +117,8 @@ public class PrepareConfigurationState extends State {
 		}
 	}
 
-	private void unzipPdfAsConfig(File configDir) throws InitializationException {
-		InputStream is = getClass().getResourceAsStream(Constants.RES_CFG_ZIP);
+	private static void unzipPdfAsConfig(File configDir) throws InitializationException {
+		InputStream is = PrepareConfigurationState.class.getResourceAsStream(Constants.RES_CFG_ZIP);
 
 		try {
 			Zipper.unzip(is, configDir.getAbsolutePath());
@@ -146,7 +147,7 @@ public class PrepareConfigurationState extends State {
 		}
 	}
 
-	private void createConfiguration(File configDir) throws InitializationException {
+	private static void createConfiguration(File configDir) throws InitializationException {
 		boolean allOK = false;
 
 		log.info("Creating configuration directory");
@@ -207,7 +208,7 @@ public class PrepareConfigurationState extends State {
 	 * @param configDir
 	 * @throws InitializationException
 	 */
-	private void backupAndCreatePdfAsConfiguration(File configDir) throws InitializationException {
+	private static void backupAndCreatePdfAsConfiguration(File configDir) throws InitializationException {
 		try {
 			File existingConfig = new File(configDir + File.separator + "cfg");
 			File backup = null;
@@ -239,25 +240,34 @@ public class PrepareConfigurationState extends State {
 		}
 	}
 
+	/**
+	 * Creates the configuration directory, or updates the PDF-AS
+	 * configuration contained in it if it is outdated
+	 * @throws InitializationException
+	 */
+	public static void ensureConfigurationDirectory() throws InitializationException {
+		File configDir = new File(Constants.CONFIG_DIRECTORY);
+		File configFile = new File(configDir, Constants.DEFAULT_CONFIG_FILENAME);
+		if (!configDir.exists() || !configFile.exists()) {
+			log.debug("Creating configuration file");
+			createConfiguration(configDir);
+		} else {
+			log.debug("Configuration directory exists!");
+			// Check PDF-AS config version
+			File versionFile = new File(configDir, Constants.CONFIG_VERSION_FILENAME);
+			String configVersion = getVersion(versionFile);
+			if (configVersion == null || VersionComparator.lessThan(configVersion, Constants.MIN_PDF_AS_CONFIG_VERSION))
+				backupAndCreatePdfAsConfiguration(configDir);
+		}
+	}
+
 	@Override
 	public void run() {
 		// Read config file
 		try {
 			StateMachine stateMachine = getStateMachine();
 			ConfigurationManager config = stateMachine.configProvider;
-			File configDir = new File(Constants.CONFIG_DIRECTORY);
-			File configFile = new File(configDir, Constants.DEFAULT_CONFIG_FILENAME);
-			if (!configDir.exists() || !configFile.exists()) {
-				log.debug("Creating configuration file");
-				createConfiguration(configDir);
-			} else {
-				log.debug("Configuration directory exists!");
-				// Check PDF-AS config version
-				File versionFile = new File(configDir, Constants.CONFIG_VERSION_FILENAME);
-				String configVersion = getVersion(versionFile);
-				if (configVersion == null || VersionComparator.lessThan(configVersion, Constants.MIN_PDF_AS_CONFIG_VERSION))
-					backupAndCreatePdfAsConfiguration(configDir);
-			}
+			ensureConfigurationDirectory();
 
 
 			// Read cli arguments for config file location first
@@ -299,6 +309,8 @@ public class PrepareConfigurationState extends State {
 				stateMachine.exit();
 			}
 
+			HttpClientUtils.setProxy(config.getProxyHost(), config.getProxyPort(), config.getProxyUser(), config.getProxyPass());
+
 			// Check for updates
 			if (config.getUpdateCheck())
 				UpdateCheckManager.checkNow(stateMachine.getMainShell());
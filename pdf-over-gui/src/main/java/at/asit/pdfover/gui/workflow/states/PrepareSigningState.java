@@ -27,11 +27,11 @@ import at.asit.pdfover.gui.composites.WaitingComposite;
 import at.asit.pdfover.gui.controls.Dialog.BUTTONS;
 import at.asit.pdfover.gui.controls.ErrorDialog;
 import at.asit.pdfover.commons.Messages;
+import at.asit.pdfover.gui.utils.HttpClientUtils;
 import at.asit.pdfover.gui.workflow.StateMachine;
 import at.asit.pdfover.gui.workflow.Status;
 import at.asit.pdfover.gui.workflow.config.ConfigurationManager;
 import at.asit.pdfover.signer.Emblem;
-import at.asit.pdfover.signer.PDFFileDocumentSource;
 import at.asit.pdfover.signer.pdfas.PdfAs4SignatureParameter;
 import at.asit.pdfover.signer.pdfas.PdfAs4Signer;
 import at.asit.pdfover.signer.pdfas.PdfAs4SigningState;
@@ -124,30 +124,22 @@ public class PrepareSigningState extends State {
 					});
 				}
 
+				HttpClientUtils.setProxy(proxyHost, proxyPort, proxyUser, proxyPass);
+
 				if (this.state.signatureParameter == null) {
 					this.state.signatureParameter = new PdfAs4SignatureParameter();
 				}
 
-				this.state.signatureParameter.inputDocument = new PDFFileDocumentSource(status.document);
+				this.state.signatureParameter.inputDocument = status.getDocumentSession().getDocumentSource();
 				this.state.signatureParameter.signatureDevice = status.bku;
 				if (status.signaturePosition != null) {
 					this.state.signatureParameter.signaturePosition = status.signaturePosition;
 				}
 
-				if (configuration.getDefaultEmblemPath() != null && !configuration.getDefaultEmblemPath().isEmpty()) {
-					this.state.signatureParameter.emblem = new Emblem(configuration.getDefaultEmblemPath());
-				}
-
-				if (configuration.getSignatureNote() != null && !configuration.getSignatureNote().isEmpty()) {
-					this.state.signatureParameter.signatureNote = configuration.getSignatureNote();
-				}
+				applyConfiguration(this.state.signatureParameter, configuration);
 
 				this.state.signatureParameter.searchForPlaceholderSignatures = status.searchForPlaceholderSignature;
 				this.state.signatureParameter.placeholderId = status.placeholderId;
-				this.state.signatureParameter.signatureLanguage = configuration.getSignatureLocale().getLanguage();
-				this.state.signatureParameter.enablePDFACompat = configuration.getSignaturePdfACompat();
-				this.state.signatureParameter.signatureProfile = configuration.getSignatureProfile();
-				this.state.signatureParameter.targetLogoSize = configuration.getLogoOnlyTargetSize();
 
 				this.state.signingState = PdfAs4Signer.prepare(this.state.signatureParameter);
 
@@ -160,6 +152,41 @@ public class PrepareSigningState extends State {
 		}
 	}
 
+	/**
+	 * Copies the configured signature settings (emblem, note, language,
+	 * profile, ...) into the given signature parameter
+	 * @param parameter the signature parameter to fill in
+	 * @param configuration the configuration to read the settings from
+	 */
+	public static void applyConfiguration(PdfAs4SignatureParameter parameter, ConfigurationManager configuration) {
+		if (configuration.getDefaultEmblemPath() != null && !configuration.getDefaultEmblemPath().isEmpty()) {
+			parameter.emblem = new Emblem(configuration.getDefaultEmblemPath());
+		}
+
+		if (configuration.getSignatureNote() != null && !configuration.getSignatureNote().isEmpty()) {
+			parameter.signatureNote = configuration.getSignatureNote();
+		}
+
+		parameter.signatureLanguage = configuration.getSignatureLocale().getLanguage();
+		parameter.enablePDFACompat = configuration.getSignaturePdfACompat();
+		parameter.signatureProfile = configuration.getSignatureProfile();
+		parameter.targetLogoSize = configuration.getLogoOnlyTargetSize();
+		parameter.outputSpillThreshold = configuration.getOutputSpillThreshold();
+	}
+
+	/**
+	 * Start loading the next pending documents in the background, while
+	 * the user is busy with signing the current one
+	 * @param status the status holding the pending documents
+	 * @param configuration the configuration
+	 */
+	private static void scheduleLookAhead(Status status, ConfigurationManager configuration) {
+		int depth = configuration.getPrepareLookAheadDepth();
+		if (depth < 1 || status.pendingDocuments.isEmpty())
+			return;
+		status.documentLookAhead.schedule(status.pendingDocuments, depth);
+	}
+
 	PdfAs4SignatureParameter signatureParameter;
 
 	private WaitingComposite waitingComposite = null;
@@ -212,6 +239,8 @@ public class PrepareSigningState extends State {
 		// We got the Request set it into status and move on to next state ...
 		status.signingState = this.signingState;
 
+		scheduleLookAhead(status, getStateMachine().configProvider);
+
 		switch (status.bku)
 		{
 			case LOCAL:
@@ -0,0 +1,210 @@
+package at.asit.pdfover.gui.bku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.JAXBElement;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import at.asit.pdfover.signer.DocumentSource;
+import at.asit.pdfover.signer.PDFFileDocumentSource;
+import at.asit.pdfover.signer.SignatureException;
+import at.asit.pdfover.signer.pdfas.PdfAs4SLRequest;
+import at.gv.egiz.sl.schema.ErrorResponseType;
+import at.gv.egiz.sl.schema.InfoboxReadResponseType;
+
+public class LocalBKUConnectorTest {
+
+    private static final String SL_NAMESPACE = "http://www.buergerkarte.at/namespaces/securitylayer/1.2#";
+    private static final String NULL_OPERATION_REQUEST = "<sl:NullOperationRequest xmlns:sl=\"" + SL_NAMESPACE + "\"/>";
+    private static final String INFOBOX_READ_RESPONSE = "<sl:InfoboxReadResponse xmlns:sl=\"" + SL_NAMESPACE + "\">" +
+            "<sl:BinaryFileData><sl:Base64Content>MAA=</sl:Base64Content></sl:BinaryFileData>" +
+            "</sl:InfoboxReadResponse>";
+
+    /* stand-in for the local BKU, answering every request with the response set by the test */
+    private static HttpServer server;
+    private static final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private static volatile int responseCode;
+    private static volatile String responseContentType;
+    private static volatile byte[] response;
+    private static volatile String requestContentType;
+    private static volatile byte[] requestBody;
+
+    @TempDir
+    Path tempDir;
+
+    private LocalBKUConnector connector;
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try (InputStream is = exchange.getRequestBody()) {
+            requestBody = is.readAllBytes();
+        }
+        requestContentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        exchange.getResponseHeaders().set("Content-Type", responseContentType);
+        exchange.sendResponseHeaders(responseCode, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    @BeforeAll
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/http-security-layer-request", LocalBKUConnectorTest::handle);
+        server.start();
+    }
+
+    @AfterAll
+    public static void stopServer() {
+        server.stop(0);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        this.connector = new LocalBKUConnector(URI.create(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/http-security-layer-request"));
+        respond(200, "text/xml; charset=utf-8",
+                ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + INFOBOX_READ_RESPONSE).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(int code, String contentType, byte[] content) {
+        responseCode = code;
+        responseContentType = contentType;
+        response = content;
+    }
+
+    private static String latin1(byte[] data) {
+        return new String(data, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * A file backed document that fails if it is read into memory as a whole
+     */
+    private static class StreamOnlyDocumentSource implements DocumentSource {
+        private final PDFFileDocumentSource file;
+
+        StreamOnlyDocumentSource(Path path) {
+            this.file = new PDFFileDocumentSource(path.toFile());
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return this.file.getInputStream();
+        }
+
+        @Override
+        public long getLength() {
+            return this.file.getLength();
+        }
+
+        @Override
+        public byte[] getByteArray() {
+            throw new AssertionError("document was read into memory");
+        }
+    }
+
+    @Test
+    public void testDocumentIsUploadedAsMultipart() throws Exception {
+        byte[] document = new byte[512 * 1024];
+        new Random(42).nextBytes(document);
+        Path file = Files.write(this.tempDir.resolve("document.pdf"), document);
+        String xmlRequest = "<sl:CreateCMSSignatureRequest xmlns:sl=\"" + SL_NAMESPACE + "\">Größe</sl:CreateCMSSignatureRequest>";
+
+        this.connector.handleSLRequest(new PdfAs4SLRequest(xmlRequest, new StreamOnlyDocumentSource(file)));
+
+        assertTrue(requestContentType.startsWith("multipart/form-data"), requestContentType);
+        String body = latin1(requestBody);
+        assertTrue(body.contains("name=\"XMLRequest\""));
+        assertTrue(body.contains(latin1(xmlRequest.getBytes(StandardCharsets.UTF_8))));
+        assertTrue(body.contains("name=\"fileupload\"; filename=\"sign.pdf\""));
+        assertTrue(body.contains(latin1(document)));
+    }
+
+    @Test
+    public void testRequestWithoutDocumentIsUrlEncoded() throws Exception {
+        this.connector.handleSLRequest(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null));
+
+        assertTrue(requestContentType.startsWith("application/x-www-form-urlencoded"), requestContentType);
+        assertTrue(latin1(requestBody).startsWith("XMLRequest="));
+    }
+
+    @Test
+    public void testResponseIsDecodedWithContentTypeCharset() throws Exception {
+        String error = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" +
+                "<sl:ErrorResponse xmlns:sl=\"" + SL_NAMESPACE + "\">" +
+                "<sl:ErrorCode>6001</sl:ErrorCode><sl:Info>Abbruch durch Benützer</sl:Info>" +
+                "</sl:ErrorResponse>";
+        respond(200, "text/xml; charset=ISO-8859-1", error.getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals(error, this.connector.handleSLRequest(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null)));
+
+        JAXBElement<?> element = (JAXBElement<?>) this.connector.handleSLRequestUnmarshalled(
+                new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null));
+        ErrorResponseType errorResponse = (ErrorResponseType) element.getValue();
+        assertEquals("Abbruch durch Benützer", errorResponse.getInfo());
+    }
+
+    @Test
+    public void testResponseWithoutCharsetIsUTF8() throws Exception {
+        String info = "<sl:Info>Gebühr</sl:Info>";
+        respond(200, "text/xml", info.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(info, this.connector.handleSLRequest(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null)));
+    }
+
+    @Test
+    public void testResponseIsUnmarshalled() throws Exception {
+        Object result = this.connector.handleSLRequestUnmarshalled(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null));
+
+        assertTrue(((JAXBElement<?>) result).getValue() instanceof InfoboxReadResponseType);
+    }
+
+    @Test
+    @Timeout(30)
+    public void testConnectionIsReturnedToPool() throws Exception {
+        /* trailing content the unmarshaller does not read must not keep the connection leased */
+        respond(200, "text/xml; charset=utf-8",
+                ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + INFOBOX_READ_RESPONSE + "\n\n\n").getBytes(StandardCharsets.UTF_8));
+        this.connector.handleSLRequest(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null));
+        int connections = clientPorts.size();
+
+        /* more requests than the pool has connections, so a leaked connection would block */
+        for (int i = 0; i < 10; ++i) {
+            if (i % 2 == 0)
+                this.connector.handleSLRequest(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null));
+            else
+                this.connector.handleSLRequestUnmarshalled(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null));
+        }
+        assertEquals(connections, clientPorts.size());
+    }
+
+    @Test
+    public void testErrorStatus() {
+        respond(500, "text/plain; charset=utf-8", "Internal error".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(SignatureException.class,
+                () -> this.connector.handleSLRequest(new PdfAs4SLRequest(NULL_OPERATION_REQUEST, (DocumentSource) null)));
+    }
+}
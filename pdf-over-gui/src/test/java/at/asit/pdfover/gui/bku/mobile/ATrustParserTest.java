@@ -0,0 +1,69 @@
+package at.asit.pdfover.gui.bku.mobile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Test;
+
+public class ATrustParserTest {
+
+    private static final String BASE = "https://www.a-trust.at/mobile/https-security-layer-request/";
+
+    private static String errorPage(String buttons) {
+        return "<html><body><form action=\"Signature.aspx\">" +
+                "<input type=\"hidden\" name=\"__VIEWSTATE\" value=\"state\"/>" +
+                "<span id=\"Label1\">Error text</span>" +
+                "<span id=\"LabelDetail\">Detail</span>" +
+                buttons +
+                "</form></body></html>";
+    }
+
+    private static ATrustParser.HTMLResult parse(String page, String html) {
+        ATrustParser.Result result = ATrustParser.Parse(URI.create(BASE + page), "text/html", html);
+        assertNull(result.slResponse);
+        assertNotNull(result.html);
+        return result.html;
+    }
+
+    @Test
+    public void testSessionClosedPage() {
+        ATrustParser.HTMLResult html = parse("SessionClosed.aspx", errorPage(""));
+        assertNotNull(html.errorBlock);
+        assertTrue(html.errorBlock.isSessionClosed);
+        assertFalse(html.errorBlock.isRecoverable);
+        assertEquals("Error text\nDetail", html.errorBlock.errorText);
+        assertEquals(URI.create(BASE + "Signature.aspx"), html.formTarget);
+    }
+
+    @Test
+    public void testOrdinaryErrorPageIsNotSessionClosed() {
+        ATrustParser.HTMLResult html = parse("error.aspx",
+                errorPage("<input type=\"submit\" id=\"Button_Back\" name=\"Button_Back\" value=\"Back\"/>"));
+        assertNotNull(html.errorBlock);
+        assertFalse(html.errorBlock.isSessionClosed);
+        assertTrue(html.errorBlock.isRecoverable);
+        /* submit inputs are only sent when clicked */
+        assertFalse(html.formOptions.containsKey("Button_Back"));
+        assertEquals("state", html.formOptions.get("__VIEWSTATE"));
+    }
+
+    @Test
+    public void testSessionClosedIsMatchedOnThePathOnly() {
+        ATrustParser.HTMLResult html = parse("error.aspx?from=SessionClosed.aspx", errorPage(""));
+        assertNotNull(html.errorBlock);
+        assertFalse(html.errorBlock.isSessionClosed);
+    }
+
+    @Test
+    public void testUnknownPageIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> parse("Unknown.aspx", errorPage("")));
+    }
+
+    @Test
+    public void testXmlResponseIsPassedThrough() {
+        ATrustParser.Result result = ATrustParser.Parse(URI.create(BASE + "Signature.aspx"), "application/xml", "<sl:Response/>");
+        assertEquals("<sl:Response/>", result.slResponse);
+        assertNull(result.html);
+    }
+}
@@ -0,0 +1,111 @@
+package at.asit.pdfover.gui.workflow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DocumentLookAheadTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<File> loaded = Collections.synchronizedList(new ArrayList<>());
+
+    private void load(DocumentSession session) {
+        this.loaded.add(session.getFile());
+    }
+
+    private File document(String name) throws IOException {
+        return Files.write(this.tempDir.resolve(name), new byte[] { 1, 2, 3 }).toFile();
+    }
+
+    private void awaitLoaded(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && this.loaded.size() < count; ++i)
+            Thread.sleep(10);
+        assertEquals(count, this.loaded.size());
+    }
+
+    @Test
+    public void testTakeReturnsLoadedSession() throws Exception {
+        DocumentLookAhead lookAhead = new DocumentLookAhead(this::load);
+        File a = document("a.pdf");
+        lookAhead.schedule(List.of(a), 2);
+        awaitLoaded(1);
+
+        DocumentSession session = lookAhead.take(a);
+        assertNotNull(session);
+        assertTrue(session.isFor(a));
+        assertEquals(List.of(a), this.loaded);
+
+        /* a session is handed out only once */
+        assertNull(lookAhead.take(a));
+        assertEquals(0, lookAhead.size());
+    }
+
+    @Test
+    public void testScheduleRespectsDepth() throws Exception {
+        DocumentLookAhead lookAhead = new DocumentLookAhead(this::load);
+        File a = document("a.pdf");
+        File b = document("b.pdf");
+        File c = document("c.pdf");
+        lookAhead.schedule(List.of(a, b, c), 2);
+        assertEquals(2, lookAhead.size());
+        assertNull(lookAhead.take(c));
+
+        /* a is no longer upcoming, so its session is dropped; b is not loaded again */
+        lookAhead.schedule(List.of(b, c), 2);
+        assertEquals(2, lookAhead.size());
+        assertNull(lookAhead.take(a));
+        awaitLoaded(3);
+        assertNotNull(lookAhead.take(c));
+    }
+
+    @Test
+    public void testChangedDocumentIsNotUsed() throws IOException {
+        DocumentLookAhead lookAhead = new DocumentLookAhead(this::load);
+        File a = document("a.pdf");
+        lookAhead.schedule(List.of(a), 1);
+
+        Files.write(a.toPath(), new byte[] { 1, 2, 3, 4 });
+        assertNull(lookAhead.take(a));
+        assertEquals(0, lookAhead.size());
+    }
+
+    @Test
+    public void testMissingDocumentIsSkipped() throws IOException {
+        DocumentLookAhead lookAhead = new DocumentLookAhead(this::load);
+        File a = document("a.pdf");
+        lookAhead.schedule(List.of(this.tempDir.resolve("missing.pdf").toFile(), a), 2);
+        assertEquals(1, lookAhead.size());
+    }
+
+    @Test
+    public void testFailedLoadStillHandsOutSession() throws IOException {
+        DocumentLookAhead lookAhead = new DocumentLookAhead(session -> {
+            throw new IOException("not a PDF");
+        });
+        File a = document("a.pdf");
+        lookAhead.schedule(List.of(a), 1);
+        assertNotNull(lookAhead.take(a));
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        DocumentLookAhead lookAhead = new DocumentLookAhead(this::load);
+        File a = document("a.pdf");
+        File b = document("b.pdf");
+        lookAhead.schedule(List.of(a, b), 2);
+        lookAhead.clear();
+        assertEquals(0, lookAhead.size());
+        assertNull(lookAhead.take(a));
+    }
+}
@@ -15,9 +15,11 @@
  */
 package at.asit.pdfover.signer;
 
-import at.asit.pdfover.signer.pdfas.PdfAs4SLRequest;
-
 // Imports
+import javax.xml.bind.JAXBException;
+
+import at.asit.pdfover.signer.pdfas.PdfAs4SLRequest;
+import at.gv.egiz.sl.util.SLMarschaller;
 
 /**
  *
@@ -30,4 +32,30 @@ public interface BkuSlConnector {
 	 * @throws UserCancelledException
 	 */
 	public String handleSLRequest(PdfAs4SLRequest request) throws SignatureException, UserCancelledException;
+
+	/**
+	 * Handle a request and unmarshal the SL response
+	 *
+	 * Connectors that receive the response as a stream should override this
+	 * to unmarshal it straight from the stream.
+	 * @param request
+	 * @return the unmarshalled SL response
+	 * @throws SignatureException
+	 * @throws UserCancelledException
+	 * @throws JAXBException if the response is no valid SL response
+	 */
+	public default Object handleSLRequestUnmarshalled(PdfAs4SLRequest request) throws SignatureException, UserCancelledException, JAXBException {
+		return SLMarschaller.unmarshalFromString(handleSLRequest(request));
+	}
+
+	/**
+	 * Identifies the signer's session with the BKU
+	 *
+	 * Requests made while this returns the same object come from the same
+	 * signer, so e.g. the signer certificate can be reused.
+	 * @return the session identity, or null if each request may come from a different signer
+	 */
+	public default Object getSessionIdentity() {
+		return null;
+	}
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.signer;
+
+//Imports
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A view of a prepared document with its signature placeholder blacked out
+ *
+ * The bytes between the signed byte ranges (the contents of the signature's
+ * hex string, without its delimiters) read as '0', like with PDF-AS's
+ * <code>PDFUtils.blackOutSignature()</code>, but are replaced while
+ * streaming instead of in a copy of the whole document.
+ */
+public class BlackedOutDocumentSource implements DocumentSource {
+
+	private static final byte BLACK_OUT = '0';
+
+	private final DocumentSource source;
+
+	/** start (inclusive) and end (exclusive) of each blacked out region, ascending */
+	private final long[] regions;
+
+	/**
+	 * Constructor
+	 * @param source the prepared document
+	 * @param byteRange the signature's byte range (offset and length of each signed range)
+	 */
+	public BlackedOutDocumentSource(DocumentSource source, int[] byteRange) {
+		this.source = source;
+		long[] regions = new long[Math.max(0, byteRange.length - 2)];
+		int count = 0;
+		for (int i = 0; i + 3 < byteRange.length; i += 2) {
+			/* skip the '<' ending the first range and the '>' starting the next */
+			long start = (long) byteRange[i] + byteRange[i + 1] + 1;
+			long end = (long) byteRange[i + 2] - 1;
+			if (end > start) {
+				regions[count++] = start;
+				regions[count++] = end;
+			}
+		}
+		this.regions = Arrays.copyOf(regions, count);
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return new BlackOutInputStream(this.source.getInputStream());
+	}
+
+	@Override
+	public long getLength() {
+		return this.source.getLength();
+	}
+
+	/**
+	 * Get a blacked out copy of the document
+	 *
+	 * The source's content is left as is.
+	 * @return the blacked out document, or null if the source has no byte[]
+	 */
+	@Override
+	public byte[] getByteArray() {
+		byte[] data = this.source.getByteArray();
+		if (data == null)
+			return null;
+		data = data.clone();
+		for (int i = 0; i < this.regions.length; i += 2) {
+			int from = (int) Math.min(this.regions[i], data.length);
+			int to = (int) Math.min(this.regions[i + 1], data.length);
+			Arrays.fill(data, from, to, BLACK_OUT);
+		}
+		return data;
+	}
+
+	private class BlackOutInputStream extends FilterInputStream {
+		private long position = 0;
+
+		BlackOutInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b < 0)
+				return b;
+			for (int i = 0; i < regions.length; i += 2) {
+				if ((this.position >= regions[i]) && (this.position < regions[i + 1])) {
+					b = BLACK_OUT;
+					break;
+				}
+			}
+			++this.position;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n <= 0)
+				return n;
+			long end = this.position + n;
+			for (int i = 0; i < regions.length; i += 2) {
+				long from = Math.max(regions[i], this.position);
+				long to = Math.min(regions[i + 1], end);
+				if (from < to)
+					Arrays.fill(b, off + (int) (from - this.position), off + (int) (to - this.position), BLACK_OUT);
+			}
+			this.position = end;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			this.position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			/* not supported */
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			throw new IOException("mark/reset not supported");
+		}
+	}
+}
@@ -17,7 +17,10 @@ package at.asit.pdfover.signer;
 
 //Imports
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * A DocumentSource using a byte[] to store the document content
@@ -43,7 +46,7 @@ public class ByteArrayDocumentSource implements DocumentSource {
 	}
 
 	@Override
-	public int getLength() {
+	public long getLength() {
 		return this.data.length;
 	}
 
@@ -52,4 +55,12 @@ public class ByteArrayDocumentSource implements DocumentSource {
 		return this.data;
 	}
 
+	@Override
+	public long transferTo(WritableByteChannel target) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(this.data);
+		while (buffer.hasRemaining())
+			target.write(buffer);
+		return this.data.length;
+	}
+
 }
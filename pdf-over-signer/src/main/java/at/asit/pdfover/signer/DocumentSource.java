@@ -17,28 +17,48 @@ package at.asit.pdfover.signer;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * A Document Source
+ *
+ * Consumers should prefer {@link #getInputStream()} and {@link #transferTo(WritableByteChannel)},
+ * which never hold the whole document in memory.
  */
 public interface DocumentSource {
 
 	/**
-	 * Gets the InputStream for this Document
-	 * @return InputStream for the document
+	 * Gets a new InputStream for this Document
+	 * @return InputStream for the document, positioned at the start
 	 * @throws IOException
 	 */
 	public InputStream getInputStream() throws IOException;
 
 	/**
 	 * Get Length of document
-	 * @return length of the document
+	 * @return length of the document in bytes
 	 */
-	public int getLength();
+	public long getLength();
 
 	/**
 	 * Get Document as byte[]
+	 *
+	 * This materializes the whole document on the heap and fails for documents
+	 * larger than 2 GB; only use it where a byte[] is strictly required.
 	 * @return byte[] of the Document
 	 */
 	public byte[] getByteArray();
+
+	/**
+	 * Writes the whole document to the given channel
+	 * @param target the channel to write to
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	public default long transferTo(WritableByteChannel target) throws IOException {
+		try (InputStream in = getInputStream()) {
+			return in.transferTo(Channels.newOutputStream(target));
+		}
+	}
 }
@@ -20,17 +20,17 @@ import at.asit.pdfover.commons.Constants;
 import at.asit.pdfover.commons.utils.ImageUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.awt.Graphics2D;
-import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import javax.imageio.ImageIO;
@@ -38,33 +38,54 @@ import javax.imageio.ImageIO;
 import org.apache.commons.codec.digest.DigestUtils;
 
 /**
- * TODO all of this caching business is a bit of a mess
+ * A signature emblem (logo)
+ *
+ * Scaled copies of emblems are kept in a content-addressed cache directory,
+ * named by the SHA-256 of the original file. The hash of an original file is
+ * only recomputed if its size or modification time changed. Decoded images
+ * are shared between all instances.
  */
 @Slf4j
 public class Emblem {
 
-	private static final String CACHE_DIR = Constants.CONFIG_DIRECTORY;
-	private static final String CACHE_IMG_FILENAME = ".emblem.png";
+	private static final File CACHE_DIR = new File(Constants.CONFIG_DIRECTORY, "emblems");
 	private static final String CACHE_IMG_FORMAT = "png";
-	private static final String CACHE_PROPS_FILENAME = ".emblem.properties";
+	private static final String CACHE_INDEX_FILENAME = "index.properties";
+	private static final int MAX_CACHE_ENTRIES = 16;
+	/* images used more recently than this are kept, as PDF-AS may not have opened them yet */
+	private static final long MIN_CACHE_AGE_MILLIS = 10 * 60 * 1000;
+	private static final int MAX_SHARED_IMAGES = 4;
+
+	/* single-slot cache used by earlier versions */
+	private static final String LEGACY_CACHE_IMG_FILENAME = ".emblem.png";
+	private static final String LEGACY_CACHE_PROPS_FILENAME = ".emblem.properties";
 
-	private static final String PROPKEY_ORIG_PATH = "IMG";
-	private static final String PROPKEY_ORIG_DIGEST = "HSH";
 	private static final int MAX_EMBLEM_WIDTH  = 480;
 	private static final int MAX_EMBLEM_HEIGHT = 600;
 
+	/** original file path to "size:mtime:hash", guarded by Emblem.class, as is the cache directory */
+	private static Properties hashIndex = null;
+
+	/** hash to scaled image, guarded by itself */
+	private static final Map<String, BufferedImage> sharedImages = new LinkedHashMap<>(MAX_SHARED_IMAGES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+			return size() > MAX_SHARED_IMAGES;
+		}
+	};
+
 	private String originalFileName = null;
 	private String originalFileHash = null;
-	private Image image = null; /* image data, if we have it */
+	private BufferedImage image = null; /* image data, if we have it */
 
 	private void lazyLoadImage() {
 		if (this.image != null) return;
-
-		String filename = getCachedFileName();
-		if (this.image != null) return; /* getCachedFileName may have re-generated the cache and populated this.image */
+		if (this.originalFileName == null || !(new File(this.originalFileName).exists())) return;
 
 		try {
-			this.image = ImageUtil.readImageWithEXIFRotation(new File(filename));
+			this.image = getScaledImage(getFileHash(this.originalFileName));
 		} catch (IOException e) {
 			log.warn("Failed to load Emblem image");
 		}
@@ -81,91 +102,161 @@ public class Emblem {
 		this.originalFileName = filename;
 	}
 
-	private static String getFileHash(String filename) throws IOException {
-		InputStream is = Files.newInputStream(Path.of(filename));
-		return DigestUtils.md5Hex(is);
+	private static File getIndexFile() {
+		return new File(CACHE_DIR, CACHE_INDEX_FILENAME);
 	}
 
-	private static BufferedImage reduceImageSizeIfNecessary(BufferedImage img, int maxWidth, int maxHeight) {
-		int oheight = img.getHeight();
-		int owidth = img.getWidth();
+	private static Properties getHashIndex() {
+		if (hashIndex == null) {
+			hashIndex = new Properties();
+			File indexFile = getIndexFile();
+			if (indexFile.isFile()) {
+				try (InputStream in = Files.newInputStream(indexFile.toPath())) {
+					hashIndex.load(in);
+				} catch (IOException e) {
+					log.warn("Can't load emblem cache index", e);
+				}
+			}
+			new File(Constants.CONFIG_DIRECTORY, LEGACY_CACHE_IMG_FILENAME).delete();
+			new File(Constants.CONFIG_DIRECTORY, LEGACY_CACHE_PROPS_FILENAME).delete();
+		}
+		return hashIndex;
+	}
 
-		double ratio = (double)owidth/(double)oheight;
+	/**
+	 * Get the SHA-256 of a file, only reading it if its size or modification
+	 * time changed since it was last hashed
+	 */
+	private static synchronized String getFileHash(String filename) throws IOException {
+		File file = new File(filename);
+		String path = file.getAbsolutePath();
+		String stamp = file.length() + ":" + file.lastModified() + ":";
+
+		Properties index = getHashIndex();
+		String entry = index.getProperty(path);
+		if (entry != null && entry.startsWith(stamp))
+			return entry.substring(stamp.length());
 
-		int height = oheight;
-		int width = owidth;
-		if (height > maxHeight) {
-			height = maxHeight;
-			width = (int) (maxHeight * ratio);
+		String hash;
+		try (InputStream is = Files.newInputStream(file.toPath())) {
+			hash = DigestUtils.sha256Hex(is);
 		}
-		if (width > maxWidth) {
-			width = maxWidth;
-			height = (int) (maxWidth / ratio);
+		index.setProperty(path, stamp + hash);
+		saveHashIndex();
+		return hash;
+	}
+
+	private static synchronized void saveHashIndex() {
+		try {
+			CACHE_DIR.mkdirs();
+			try (OutputStream out = Files.newOutputStream(getIndexFile().toPath())) {
+				getHashIndex().store(out, null);
+			}
+		} catch (IOException e) {
+			log.warn("Can't save emblem cache index", e);
 		}
-		BufferedImage result = img;
-		if (width != owidth || height != oheight) {
-			//scale image
-			log.debug("Scaling emblem: " + owidth + "x" + oheight + " to " + width + "x" + height);
-			result = new BufferedImage(width, height, img.getType() == 0 ? BufferedImage.TYPE_INT_ARGB : img.getType());
-			Graphics2D g = result.createGraphics();
-			g.drawImage(img, 0, 0, width, height, null);
-			g.dispose();
+	}
+
+	private static File getCacheFile(String hash) {
+		return new File(CACHE_DIR, hash + "." + CACHE_IMG_FORMAT);
+	}
+
+	/**
+	 * Get the scaled image for an original file with the given hash, from
+	 * memory, the cache directory, or by decoding and scaling the original
+	 */
+	private BufferedImage getScaledImage(String hash) throws IOException {
+		synchronized (sharedImages) {
+			BufferedImage img = sharedImages.get(hash);
+			if (img != null)
+				return img;
+		}
+
+		BufferedImage img = null;
+		File cacheFile = getCacheFile(hash);
+		if (cacheFile.isFile()) {
+			try {
+				img = ImageIO.read(cacheFile);
+			} catch (IOException e) {
+				log.debug("Can't read cached emblem, decoding the original", e);
+			}
 		}
-		return result;
+		if (img == null) {
+			// decoded directly at (about) the target size, huge photos are never held at full resolution
+			img = ImageUtil.readImageWithEXIFRotation(new File(this.originalFileName), MAX_EMBLEM_WIDTH, MAX_EMBLEM_HEIGHT);
+			if (img == null)
+				throw new IOException("Unsupported image format: " + this.originalFileName);
+		}
+
+		synchronized (sharedImages) {
+			sharedImages.put(hash, img);
+		}
+		return img;
 	}
 
-	/* (non-Javadoc)
-	 * @see at.asit.pdfover.signator.Emblem#getFileName()
+	/**
+	 * Get the file name of the scaled emblem to pass to PDF-AS
+	 * @return the cached file name, the original file name if caching failed, or null if there is no emblem
 	 */
 	public String getCachedFileName() {
 		String emblemImg = this.originalFileName;
-		String emblemHsh = null;
-		String cachedEmblemFileName = CACHE_DIR + File.separator + CACHE_IMG_FILENAME;
 
 		if (emblemImg == null || !(new File(emblemImg).exists()))
 			return null;
 
-		Properties emblemProps = new Properties();
-		// compare cache, try to load if match
 		try {
-			File cacheProps = new File(CACHE_DIR, CACHE_PROPS_FILENAME);
-			if (cacheProps.exists()) {
-				InputStream in = new FileInputStream(cacheProps);
-				emblemProps.load(in);
-				if (emblemImg.equals(emblemProps.getProperty(PROPKEY_ORIG_PATH))) {
-					emblemHsh = getFileHash(emblemImg);
-					if (emblemHsh.equals(emblemProps.getProperty(PROPKEY_ORIG_DIGEST))) {
-						log.debug("Emblem cache hit: " + cachedEmblemFileName);
-						return cachedEmblemFileName;
-					}
+			String hash = getFileHash(emblemImg);
+			File cacheFile = getCacheFile(hash);
+			synchronized (Emblem.class) {
+				if (cacheFile.isFile()) {
+					log.debug("Emblem cache hit: " + cacheFile);
+					/* keeps it from being pruned as least recently used */
+					cacheFile.setLastModified(System.currentTimeMillis());
+					return cacheFile.getPath();
 				}
 			}
 			log.debug("Emblem cache miss");
-		} catch (Exception e) {
-			log.warn("Can't load emblem cache", e);
-		}
 
-		try {
-			// create new cache
-			if (emblemHsh == null)
-				emblemHsh = getFileHash(emblemImg);
-			emblemProps.setProperty(PROPKEY_ORIG_PATH, emblemImg);
-			emblemProps.setProperty(PROPKEY_ORIG_DIGEST, emblemHsh);
-			File imgFile = new File(emblemImg);
-
-			BufferedImage img = ImageUtil.readImageWithEXIFRotation(imgFile);
-			img = reduceImageSizeIfNecessary(img, MAX_EMBLEM_WIDTH, MAX_EMBLEM_HEIGHT);
-
-			File file = new File(CACHE_DIR, CACHE_IMG_FILENAME);
-			ImageIO.write(img, CACHE_IMG_FORMAT, file); // ignore returned boolean
+			BufferedImage img = getScaledImage(hash);
 			this.image = img;
-			OutputStream out = new FileOutputStream(new File(CACHE_DIR, CACHE_PROPS_FILENAME));
-			emblemProps.store(out, null);
+
+			synchronized (Emblem.class) {
+				CACHE_DIR.mkdirs();
+				File tmp = File.createTempFile(hash, ".tmp", CACHE_DIR);
+				ImageIO.write(img, CACHE_IMG_FORMAT, tmp); // ignore returned boolean
+				Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				pruneCache();
+			}
+			return cacheFile.getPath();
 		} catch (IOException e) {
 			log.error("Can't save emblem cache", e);
 			return this.originalFileName;
 		}
-		return cachedEmblemFileName;
+	}
+
+	/**
+	 * Remove the least recently used images beyond MAX_CACHE_ENTRIES, and
+	 * the index entries of originals whose image is gone
+	 */
+	private static synchronized void pruneCache() {
+		File[] images = CACHE_DIR.listFiles((dir, name) -> name.endsWith("." + CACHE_IMG_FORMAT));
+		if (images == null || images.length <= MAX_CACHE_ENTRIES)
+			return;
+		Arrays.sort(images, Comparator.comparingLong(File::lastModified));
+		long keepAfter = System.currentTimeMillis() - MIN_CACHE_AGE_MILLIS;
+		for (int i = 0; i < images.length - MAX_CACHE_ENTRIES; ++i) {
+			if (images[i].lastModified() < keepAfter)
+				images[i].delete();
+		}
+
+		Properties index = getHashIndex();
+		boolean changed = index.entrySet().removeIf(e -> {
+			String entry = (String) e.getValue();
+			String hash = entry.substring(entry.lastIndexOf(':') + 1);
+			return !getCacheFile(hash).isFile();
+		});
+		if (changed)
+			saveHashIndex();
 	}
 
 	/**
@@ -177,8 +268,8 @@ public class Emblem {
 	}
 
 	/**
-	 * Return the original filename
-	 * @return the original filename
+	 * Return the SHA-256 of the original file
+	 * @return the hash, or an empty string if the file cannot be read
 	 */
 	public String getOriginalFileHash() {
 		if (this.originalFileHash == null) {
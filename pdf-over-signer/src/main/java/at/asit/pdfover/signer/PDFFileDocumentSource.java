@@ -17,23 +17,30 @@ package at.asit.pdfover.signer;
 
 // Imports
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * A DocumentSource backed by a file on disk
  *
+ * The file is streamed through a {@link FileChannel} on every access;
+ * its content is only held in memory if {@link #getByteArray()} is called.
  */
 @Slf4j
 public class PDFFileDocumentSource implements DocumentSource {
 
-	private File file;
+	/** largest array the JVM will reliably allocate */
+	private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
-	private byte[] data = null;
+	private final File file;
 
-	private int len = 0;
+	private byte[] data = null;
 
 	/**
 	 * Default constructor
@@ -43,24 +50,42 @@ public class PDFFileDocumentSource implements DocumentSource {
 		this.file = file;
 	}
 
+	/**
+	 * Gets the file backing this document source
+	 * @return the file
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
 	/* (non-Javadoc)
 	 * @see at.asit.pdfover.signator.DocumentSource#getInputStream()
 	 */
 	@Override
 	public InputStream getInputStream() throws IOException {
-		return new FileInputStream(this.file);
+		return Files.newInputStream(this.file.toPath());
 	}
 
 	/* (non-Javadoc)
 	 * @see at.asit.pdfover.signator.DocumentSource#getLength()
 	 */
 	@Override
-	public int getLength() {
-		if(this.file.length() > Integer.MAX_VALUE) {
-			log.error("File size to big!" + this.file.length());
+	public long getLength() {
+		return this.file.length();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.asit.pdfover.signer.DocumentSource#transferTo(java.nio.channels.WritableByteChannel)
+	 */
+	@Override
+	public long transferTo(WritableByteChannel target) throws IOException {
+		try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while (position < size)
+				position += channel.transferTo(position, size - position, target);
+			return position;
 		}
-		this.len = (int) this.file.length();
-		return this.len;
 	}
 
 	/* (non-Javadoc)
@@ -69,11 +94,13 @@ public class PDFFileDocumentSource implements DocumentSource {
 	@Override
 	public byte[] getByteArray() {
 		if(this.data == null) {
+			long length = getLength();
+			if (length > MAX_ARRAY_SIZE) {
+				log.error("File size too big for byte array: " + length);
+				return null;
+			}
 			try {
-				InputStream stream = this.getInputStream();
-				this.data = new byte[this.getLength()];
-				stream.read(this.data);
-				stream.close();
+				this.data = Files.readAllBytes(this.file.toPath());
 			} catch(IOException ex) {
 				log.error("Failed to read file!", ex);
 			}
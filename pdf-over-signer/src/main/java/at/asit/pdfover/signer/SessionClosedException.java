@@ -0,0 +1,24 @@
+package at.asit.pdfover.signer;
+
+/**
+ * The BKU session closed in the middle of a signature
+ *
+ * Whoever logs in next may be someone else, so the signature has to start
+ * over from reading the signer certificate. {@link at.asit.pdfover.signer.pdfas.PdfAs4Signer#sign}
+ * does so by itself.
+ */
+public class SessionClosedException extends SignatureException {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 3017286530384626291L;
+
+	/**
+	 * Constructor with message
+	 * @param msg the message
+	 */
+	public SessionClosedException(String msg) {
+		super(msg);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.signer;
+
+// Imports
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Output sink for signed documents
+ *
+ * Data is kept in memory until it exceeds the configured threshold, then
+ * everything is moved to a temporary file and the rest is written there.
+ * A threshold of 0 writes to the file right away.
+ */
+@Slf4j
+public class SpillToFileOutputStream extends OutputStream {
+
+	private final long threshold;
+	private final File directory;
+
+	private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+	private File file = null;
+	private OutputStream fileStream = null;
+	private long count = 0;
+	private boolean closed = false;
+
+	/**
+	 * Constructor
+	 * @param threshold the number of bytes to keep in memory before spilling to disk
+	 * @param directory the directory to create the temporary file in
+	 */
+	public SpillToFileOutputStream(long threshold, File directory) {
+		this.threshold = threshold;
+		this.directory = directory;
+	}
+
+	private void spill() throws IOException {
+		if (!this.directory.isDirectory())
+			this.directory.mkdirs();
+		this.file = File.createTempFile("signed-", ".pdf", this.directory);
+		log.debug("Spilling output to {} after {} bytes", this.file, this.count);
+		this.fileStream = new BufferedOutputStream(new FileOutputStream(this.file));
+		this.memory.writeTo(this.fileStream);
+		this.memory = null;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (this.closed)
+			throw new IOException("Stream closed");
+		if ((this.file == null) && (this.count + len > this.threshold))
+			spill();
+		if (this.file == null)
+			this.memory.write(b, off, len);
+		else
+			this.fileStream.write(b, off, len);
+		this.count += len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (this.fileStream != null)
+			this.fileStream.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed)
+			return;
+		this.closed = true;
+		if (this.fileStream != null)
+			this.fileStream.close();
+	}
+
+	/**
+	 * Gets the number of bytes written so far
+	 * @return the byte count
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Closes the stream and returns the written data as a DocumentSource
+	 * @return a {@link TemporaryFileDocumentSource} if the data was spilled to disk,
+	 *         a {@link ByteArrayDocumentSource} otherwise
+	 * @throws IOException
+	 */
+	public DocumentSource toDocumentSource() throws IOException {
+		close();
+		if (this.file != null)
+			return new TemporaryFileDocumentSource(this.file);
+		return new ByteArrayDocumentSource(this.memory.toByteArray());
+	}
+
+	/**
+	 * Closes the stream and deletes any temporary file
+	 */
+	public void discard() {
+		try {
+			close();
+		} catch (IOException e) {
+			log.debug("Failed to close output", e);
+		}
+		this.memory = null;
+		if (this.file != null && !this.file.delete())
+			log.warn("Failed to delete temporary file " + this.file);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.signer;
+
+// Imports
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A DocumentSource backed by a temporary file that is owned by this object
+ *
+ * The file can be moved to its final destination with {@link #moveTo(File)};
+ * otherwise it is deleted by {@link #dispose()}.
+ */
+@Slf4j
+public class TemporaryFileDocumentSource extends PDFFileDocumentSource {
+
+	private boolean moved = false;
+
+	/**
+	 * Constructor
+	 * @param file the temporary file, ownership is transferred to this object
+	 */
+	public TemporaryFileDocumentSource(File file) {
+		super(file);
+	}
+
+	/**
+	 * Moves the document to the given target, replacing any existing file
+	 *
+	 * An atomic rename is attempted first; if the target is on a different
+	 * file system, the content is copied with {@link FileChannel#transferTo}.
+	 * This source must not be used afterwards, use the returned one instead.
+	 * @param target the target file
+	 * @return a document source for the target file
+	 * @throws IOException
+	 */
+	public PDFFileDocumentSource moveTo(File target) throws IOException {
+		if (this.moved)
+			throw new IllegalStateException("Document has already been moved");
+
+		Path source = getFile().toPath();
+		Path destination = target.toPath();
+		try {
+			Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			log.debug("Atomic move to {} not supported, copying", destination);
+			try (FileChannel out = FileChannel.open(destination, StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				transferTo(out);
+			}
+			try {
+				Files.deleteIfExists(source);
+			} catch (IOException ex) {
+				log.warn("Failed to delete temporary file " + source, ex);
+			}
+		}
+		this.moved = true;
+		return new PDFFileDocumentSource(target);
+	}
+
+	/**
+	 * Deletes the temporary file, if it has not been moved to its destination
+	 */
+	public void dispose() {
+		if (this.moved)
+			return;
+		try {
+			Files.deleteIfExists(getFile().toPath());
+		} catch (IOException e) {
+			log.warn("Failed to delete temporary file " + getFile(), e);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.signer.pdfas;
+
+// Imports
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.activation.DataSource;
+
+import at.asit.pdfover.signer.DocumentSource;
+
+/**
+ * Exposes a DocumentSource as the (read-only) DataSource PDF-AS expects
+ *
+ * Every call to {@link #getInputStream()} opens a fresh stream on the
+ * underlying document, so it is never copied into a byte[] on our side.
+ */
+class DocumentDataSource implements DataSource {
+
+	private final DocumentSource source;
+
+	/**
+	 * Constructor
+	 * @param source the document to expose
+	 */
+	DocumentDataSource(DocumentSource source) {
+		this.source = source;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return this.source.getInputStream();
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		throw new IOException("DocumentDataSource is read-only");
+	}
+
+	@Override
+	public String getContentType() {
+		return "application/pdf";
+	}
+
+	@Override
+	public String getName() {
+		return "input.pdf";
+	}
+}
@@ -20,13 +20,15 @@ import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 
 import at.asit.pdfover.signer.BkuSlConnector;
+import at.asit.pdfover.signer.BlackedOutDocumentSource;
+import at.asit.pdfover.signer.ByteArrayDocumentSource;
+import at.asit.pdfover.signer.DocumentSource;
 import at.asit.pdfover.signer.SignatureException;
 import at.asit.pdfover.signer.UserCancelledException;
 import at.asit.pdfover.signer.pdfas.exceptions.PdfAs4SLRequestException;
 import at.gv.egiz.pdfas.common.exceptions.PDFIOException;
 import at.gv.egiz.pdfas.common.exceptions.PdfAsException;
 import at.gv.egiz.pdfas.common.exceptions.SLPdfAsException;
-import at.gv.egiz.pdfas.common.utils.PDFUtils;
 import at.gv.egiz.pdfas.lib.api.IConfigurationConstants;
 import at.gv.egiz.pdfas.lib.api.sign.SignParameter;
 import at.gv.egiz.sl.schema.CreateCMSSignatureResponseType;
@@ -62,13 +64,19 @@ public class PdfAs4BKUSLConnector extends BaseSLConnector {
 			InfoboxReadRequestType request, SignParameter parameter)
 			throws PdfAsException {
 		JAXBElement<?> element = null;
+		String slRequestString = null;
 		try {
 			try {
-				String slRequestString = SLMarschaller.marshalToString(this.of.createInfoboxReadRequest(request));
+				slRequestString = SLMarschaller.marshalToString(this.of.createInfoboxReadRequest(request));
 
-				String slResponse = this.connector.handleSLRequest(new PdfAs4SLRequest(slRequestString, null));
+				/* the signer of a session does not change, so neither does the certificate */
+				InfoboxReadResponseType cached = PdfAs4CertificateCache.get(this.connector.getSessionIdentity(), slRequestString);
+				if (cached != null) {
+					log.debug("Using cached signer certificate");
+					return cached;
+				}
 
-				element = (JAXBElement<?>) SLMarschaller.unmarshalFromString(slResponse);
+				element = (JAXBElement<?>) this.connector.handleSLRequestUnmarshalled(new PdfAs4SLRequest(slRequestString, (DocumentSource) null));
 			} catch (SignatureException e) {
 				Throwable c = e;
 				while (c.getCause() != null)
@@ -93,7 +101,9 @@ public class PdfAs4BKUSLConnector extends BaseSLConnector {
 		}
 
 		if (element.getValue() instanceof InfoboxReadResponseType) {
-			return (InfoboxReadResponseType) element.getValue();
+			InfoboxReadResponseType response = (InfoboxReadResponseType) element.getValue();
+			PdfAs4CertificateCache.put(this.connector.getSessionIdentity(), slRequestString, response);
+			return response;
 		} else if (element.getValue() instanceof ErrorResponseType) {
 			ErrorResponseType errorResponseType = (ErrorResponseType)element.getValue();
 			throw new SLPdfAsException(errorResponseType.getErrorCode(), errorResponseType.getInfo());
@@ -112,16 +122,15 @@ public class PdfAs4BKUSLConnector extends BaseSLConnector {
 			
 			String slRequestString = SLMarschaller.marshalToString(this.of.createCreateCMSSignatureRequest(pack.getRequestType()));
 
-			byte[] signatureData = pack.getSignatureData();
+			/* blacked out while uploading, rather than in yet another copy of the document */
+			DocumentSource signatureData = new ByteArrayDocumentSource(pack.getSignatureData());
 			if (IConfigurationConstants.SL_REQUEST_TYPE_UPLOAD.equals(parameter.getConfiguration().getValue(IConfigurationConstants.SL_REQUEST_TYPE)))
-				signatureData = PDFUtils.blackOutSignature(signatureData, pack.getByteRange());
+				signatureData = new BlackedOutDocumentSource(signatureData, pack.getByteRange());
 
 			PdfAs4SLRequest slRequest = new PdfAs4SLRequest(slRequestString, signatureData);
 
 			try {
-				String slResponse = this.connector.handleSLRequest(slRequest);
-
-				element = (JAXBElement<?>) SLMarschaller.unmarshalFromString(slResponse);
+				element = (JAXBElement<?>) this.connector.handleSLRequestUnmarshalled(slRequest);
 			} catch (SignatureException e) {
 				Throwable c = e;
 				while (c.getCause() != null)
@@ -153,6 +162,8 @@ public class PdfAs4BKUSLConnector extends BaseSLConnector {
 		} else if (element.getValue() instanceof ErrorResponseType) {
 			ErrorResponseType errorResponseType = (ErrorResponseType) element
 					.getValue();
+			/* in case the signer did change after all, read the certificate again next time */
+			PdfAs4CertificateCache.invalidate(this.connector.getSessionIdentity());
 			throw new SLPdfAsException(errorResponseType.getErrorCode(), errorResponseType.getInfo());
 		}
 		throw new PdfAsException("error.pdf.io.03");
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.signer.pdfas;
+
+// Imports
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import at.asit.pdfover.signer.BkuSlConnector;
+import at.gv.egiz.sl.schema.InfoboxReadResponseType;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of signer certificates read from a BKU, per BKU session
+ *
+ * Reading the certificate is a full security layer round-trip, which for
+ * the Mobile BKU may even involve the user. While a connector reports the
+ * same {@link BkuSlConnector#getSessionIdentity() session identity}, the
+ * signer cannot have changed, so its certificate is reused for up to
+ * {@link #TTL_MILLIS}, and never past the certificate's expiry.
+ */
+@Slf4j
+public final class PdfAs4CertificateCache {
+
+	/** how long a certificate read is reused at most */
+	public static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+	/** session identity to request to entry; weak, so entries of finished sessions go away */
+	private static final Map<Object, Map<String, CacheEntry>> certificates = new WeakHashMap<>();
+
+	/** the current time in milliseconds; replaced by tests only */
+	static LongSupplier clock = System::currentTimeMillis;
+
+	private static final class CacheEntry {
+		final InfoboxReadResponseType response;
+		final long expiresAt;
+
+		CacheEntry(InfoboxReadResponseType response, long expiresAt) {
+			this.response = response;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private PdfAs4CertificateCache() {
+	}
+
+	/**
+	 * Get a cached response
+	 * @param session the session identity, or null
+	 * @param request the marshalled infobox read request
+	 * @return the cached response, or null if there is no valid one
+	 */
+	public static synchronized InfoboxReadResponseType get(Object session, String request) {
+		if (session == null)
+			return null;
+		Map<String, CacheEntry> entries = certificates.get(session);
+		if (entries == null)
+			return null;
+		CacheEntry entry = entries.get(request);
+		if (entry == null)
+			return null;
+		if (entry.expiresAt <= clock.getAsLong()) {
+			entries.remove(request);
+			return null;
+		}
+		return entry.response;
+	}
+
+	/**
+	 * Cache a response, if it holds a currently valid certificate
+	 * @param session the session identity, or null to not cache anything
+	 * @param request the marshalled infobox read request
+	 * @param response the response
+	 */
+	public static synchronized void put(Object session, String request, InfoboxReadResponseType response) {
+		if (session == null)
+			return;
+		long now = clock.getAsLong();
+		X509Certificate certificate = getCertificate(response, now);
+		if (certificate == null)
+			return;
+		long expiresAt = Math.min(now + TTL_MILLIS, certificate.getNotAfter().getTime());
+		certificates.computeIfAbsent(session, k -> new HashMap<>()).put(request, new CacheEntry(response, expiresAt));
+	}
+
+	private static X509Certificate getCertificate(InfoboxReadResponseType response, long now) {
+		if ((response.getBinaryFileData() == null) || (response.getBinaryFileData().getBase64Content() == null))
+			return null;
+		try {
+			X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+					new ByteArrayInputStream(response.getBinaryFileData().getBase64Content()));
+			certificate.checkValidity(new Date(now));
+			return certificate;
+		} catch (CertificateException | ClassCastException e) {
+			log.debug("Not caching signer certificate", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Drop all certificates cached for the given session
+	 * @param session the session identity
+	 */
+	public static synchronized void invalidate(Object session) {
+		if (session != null)
+			certificates.remove(session);
+	}
+
+	/**
+	 * Drop all cached certificates
+	 */
+	public static synchronized void invalidateAll() {
+		certificates.clear();
+	}
+}
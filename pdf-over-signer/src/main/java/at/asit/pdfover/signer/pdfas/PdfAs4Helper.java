@@ -19,6 +19,7 @@ package at.asit.pdfover.signer.pdfas;
 import java.io.File;
 
 import at.asit.pdfover.signer.SignatureException;
+import at.gv.egiz.pdfas.lib.api.Configuration;
 import at.gv.egiz.pdfas.lib.api.PdfAs;
 import at.gv.egiz.pdfas.lib.api.PdfAsFactory;
 
@@ -30,22 +31,47 @@ public class PdfAs4Helper {
 	/**
 	 * PDF-AS Object
 	 */
-	private static PdfAs pdfAs = null;
+	private static volatile PdfAs pdfAs = null;
 
 	/**
 	 * Gets PDF-AS Object
 	 * @return the PDF-AS Object
 	 * @throws SignatureException
 	 */
-	public static synchronized PdfAs getPdfAs() throws SignatureException {
-		if (pdfAs == null) {
-			try {
-				pdfAs = createPdfAs();
-			} catch(Exception e) {
-				throw new SignatureException(e);
+	public static PdfAs getPdfAs() throws SignatureException {
+		PdfAs result = pdfAs;
+		if (result != null)
+			return result;
+
+		synchronized (PdfAs4Helper.class) {
+			if (pdfAs == null) {
+				try {
+					pdfAs = createPdfAs();
+				} catch(Exception e) {
+					throw new SignatureException(e);
+				}
 			}
+			return pdfAs;
+		}
+	}
+
+	/**
+	 * Creates a private copy of the PDF-AS base configuration for a single transaction
+	 *
+	 * The base configuration is never modified; all per-document settings
+	 * (emblem, note, logo size, request type, ...) go into the returned copy,
+	 * so independent transactions can be prepared and signed concurrently.
+	 * @return a configuration owned exclusively by the caller
+	 * @throws SignatureException
+	 */
+	public static Configuration createTransactionConfiguration() throws SignatureException {
+		try {
+			return (Configuration) getPdfAs().getConfiguration().cloneConfiguration();
+		} catch (SignatureException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SignatureException("Failed to copy PDF-AS configuration", e);
 		}
-		return pdfAs;
 	}
 
 	/**
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 by A-SIT, Secure Information Technology Center Austria
+ *
+ * Licensed under the EUPL, Version 1.1 or - as soon they will be approved by
+ * the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * http://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package at.asit.pdfover.signer.pdfas;
+
+// Imports
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import at.asit.pdfover.signer.SignatureException;
+import at.gv.egiz.pdfas.common.exceptions.PDFASError;
+import at.gv.egiz.pdfas.lib.api.sign.IPlainSigner;
+import at.gv.egiz.pdfas.sigs.pades.PAdESSignerKeystore;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Session-wide cache of unlocked keystore signers
+ *
+ * Opening a keystore parses and decrypts the whole file (including a PBKDF
+ * run for PKCS#12), so it is by far the most expensive step of a keystore
+ * signature. Entries are keyed by keystore file, modification time, alias,
+ * type and a digest of the passwords, so a changed file or password never
+ * hits a stale signer.
+ */
+@Slf4j
+public final class PdfAs4KeystoreSignerCache {
+
+	private static final int MAX_ENTRIES = 4;
+
+	/** cache key to signer, in access order */
+	private static final Map<String, CacheEntry> signers = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private static final class CacheEntry {
+		final String path;
+		final IPlainSigner signer;
+
+		CacheEntry(String path, IPlainSigner signer) {
+			this.path = path;
+			this.signer = signer;
+		}
+	}
+
+	private PdfAs4KeystoreSignerCache() {
+	}
+
+	private static String getPath(String file) {
+		try {
+			return new File(file).getCanonicalPath();
+		} catch (IOException e) {
+			return new File(file).getAbsolutePath();
+		}
+	}
+
+	private static String getKey(String path, String alias, String kspassword,
+			String keypassword, String type) {
+		String passwordDigest = DigestUtils.sha256Hex(kspassword + '\0' + keypassword);
+		return String.join("\0", path, Long.toString(new File(path).lastModified()), alias, type, passwordDigest);
+	}
+
+	/**
+	 * Get an unlocked signer for the given keystore key, opening the keystore
+	 * only if no matching signer is cached
+	 * @param file the keystore file
+	 * @param alias the key alias
+	 * @param kspassword the keystore password
+	 * @param keypassword the key password
+	 * @param type the keystore type
+	 * @return the signer
+	 * @throws SignatureException if the keystore or key cannot be opened
+	 */
+	public static synchronized IPlainSigner getSigner(String file, String alias, String kspassword,
+			String keypassword, String type) throws SignatureException {
+		String path = getPath(file);
+		String key = getKey(path, alias, kspassword, keypassword, type);
+		CacheEntry entry = signers.get(key);
+		if (entry != null)
+			return entry.signer;
+
+		/* anything still cached for this file is outdated */
+		invalidate(file);
+
+		try {
+			log.debug("Opening keystore {}", path);
+			IPlainSigner signer = new PAdESSignerKeystore(file, alias, kspassword, keypassword, type);
+			signers.put(key, new CacheEntry(path, signer));
+			return signer;
+		} catch (PDFASError e) {
+			throw new SignatureException(e);
+		}
+	}
+
+	/**
+	 * @param file the keystore file
+	 * @param alias the key alias
+	 * @param kspassword the keystore password
+	 * @param keypassword the key password
+	 * @param type the keystore type
+	 * @return whether a signer for exactly this key and the current file contents is cached
+	 */
+	public static synchronized boolean contains(String file, String alias, String kspassword,
+			String keypassword, String type) {
+		if (file == null || kspassword == null || keypassword == null)
+			return false;
+		return signers.containsKey(getKey(getPath(file), alias, kspassword, keypassword, type));
+	}
+
+	/**
+	 * Drop all signers opened from the given keystore file
+	 * @param file the keystore file
+	 */
+	public static synchronized void invalidate(String file) {
+		if (file == null)
+			return;
+		String path = getPath(file);
+		Iterator<CacheEntry> it = signers.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().path.equals(path))
+				it.remove();
+		}
+	}
+
+	/**
+	 * Drop all cached signers
+	 */
+	public static synchronized void invalidateAll() {
+		signers.clear();
+	}
+}
@@ -16,6 +16,7 @@
 package at.asit.pdfover.signer.pdfas;
 
 import at.asit.pdfover.signer.ByteArrayDocumentSource;
+import at.asit.pdfover.signer.DocumentSource;
 import at.asit.pdfover.signer.pdfas.exceptions.PdfAs4SLRequestException;
 
 /**
@@ -31,7 +32,7 @@ public class PdfAs4SLRequest {
 	/**
 	 * The document to be signed
 	 */
-	public final ByteArrayDocumentSource signatureData;
+	public final DocumentSource signatureData;
 
 	/**
 	 * Default constructor
@@ -40,7 +41,17 @@ public class PdfAs4SLRequest {
 	 * @throws PdfAs4SLRequestException
 	 */
 	public PdfAs4SLRequest(String slRequest, byte[] signData) throws PdfAs4SLRequestException {
+		this(slRequest, (signData == null ? null : new ByteArrayDocumentSource(signData)));
+	}
+
+	/**
+	 * Constructor with a streamable document
+	 * @param slRequest
+	 * @param signData the document to be signed, or null
+	 * @throws PdfAs4SLRequestException
+	 */
+	public PdfAs4SLRequest(String slRequest, DocumentSource signData) throws PdfAs4SLRequestException {
 		this.xmlRequest = slRequest;
-		this.signatureData = (signData == null ? null : new ByteArrayDocumentSource(signData));
+		this.signatureData = signData;
 	}
 }
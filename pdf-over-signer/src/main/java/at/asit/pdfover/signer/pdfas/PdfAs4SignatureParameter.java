@@ -21,11 +21,11 @@ import iaik.x509.X509Certificate;
 import lombok.extern.slf4j.Slf4j;
 
 import java.awt.Image;
-import java.awt.image.BufferedImage;
 import java.util.Locale;
 
 import at.asit.pdfover.signer.DocumentSource;
 import at.asit.pdfover.signer.Emblem;
+import at.asit.pdfover.signer.SignatureException;
 import at.asit.pdfover.signer.SignaturePosition;
 import at.gv.egiz.pdfas.lib.api.Configuration;
 import at.gv.egiz.pdfas.lib.api.PdfAs;
@@ -81,47 +81,66 @@ public class PdfAs4SignatureParameter {
     /** The signature profile in use */
     public Profile signatureProfile = Profile.getDefaultProfile();
 
+    /** Signed documents larger than this (in bytes) are written to a temporary file */
+    public long outputSpillThreshold = Constants.DEFAULT_OUTPUT_SPILL_THRESHOLD;
+
+    /**
+     * Creates the configuration for a single transaction using these parameters
+     *
+     * The result is a private copy of the PDF-AS base configuration, so no locking is required
+     * @param sigProfile the signature profile id
+     * @param sigEmblem the (cached) emblem file name, may be null
+     * @return the transaction configuration
+     * @throws SignatureException
+     */
+    Configuration createTransactionConfiguration(String sigProfile, String sigEmblem) throws SignatureException {
+        Configuration conf = PdfAs4Helper.createTransactionConfiguration();
+        if (sigEmblem != null && !sigEmblem.trim().isEmpty()) {
+            conf.setValue("sig_obj." + sigProfile + ".value.SIG_LABEL", sigEmblem);
+        }
+        if (this.signatureNote != null) {
+            conf.setValue("sig_obj." + sigProfile + ".value.SIG_NOTE", this.signatureNote);
+        }
+        if (this.signatureProfile == Profile.BASE_LOGO)
+        {
+            int emblemWidth = (this.emblem != null) ? this.emblem.getWidth() : 1;
+            int emblemHeight = (this.emblem != null) ? this.emblem.getHeight() : 1;
+            double aspectRatio = ((double)emblemWidth) / emblemHeight;
+            double targetWidth = this.targetLogoSize * Constants.PDF_UNITS_PER_MM;
+            double targetHeight = this.targetLogoSize * Constants.PDF_UNITS_PER_MM;
+            if (aspectRatio < 1)
+                targetWidth *= aspectRatio;
+            else
+                targetHeight /= aspectRatio;
+            conf.setValue("sig_obj." + sigProfile + ".table.main.Style.padding", "0");
+            conf.setValue("sig_obj." + sigProfile + ".pos", "w:"+targetWidth+";f:0");
+            conf.setValue("sig_obj." + sigProfile + ".table.main.Style.imagescaletofit", targetWidth+";"+targetHeight);
+        }
+        return conf;
+    }
+
+    /**
+     * Renders a preview of the signature block
+     *
+     * @return the preview, or null if it could not be generated
+     */
     Image getPlaceholder() {
         String sigProfile = getPdfAsSignatureProfileId();
 
         String sigEmblem = (this.emblem == null ? null : this.emblem.getCachedFileName());
-        String sigNote = this.signatureNote;
 
         try {
             X509Certificate cert = new X509Certificate(PdfAs4SignatureParameter.class.getResourceAsStream("/example.cer"));
-            
+
             PdfAs pdfas = PdfAs4Helper.getPdfAs();
-            synchronized (PdfAs4Helper.class) {
-                Configuration conf = pdfas.getConfiguration();
-                if (sigEmblem != null && !sigEmblem.trim().equals("")) {
-                    conf.setValue("sig_obj." + sigProfile + ".value.SIG_LABEL", sigEmblem);
-                }
-                if (sigNote != null) {
-                    conf.setValue("sig_obj." + sigProfile + ".value.SIG_NOTE", sigNote);
-                }
-                if (this.signatureProfile == Profile.BASE_LOGO)
-                {
-                    int emblemWidth = (this.emblem != null) ? this.emblem.getWidth() : 1;
-                    int emblemHeight = (this.emblem != null) ? this.emblem.getHeight() : 1;
-                    double aspectRatio = ((double)emblemWidth) / emblemHeight;
-                    double targetWidth = this.targetLogoSize * Constants.PDF_UNITS_PER_MM;
-                    double targetHeight = this.targetLogoSize * Constants.PDF_UNITS_PER_MM;
-                    if (aspectRatio < 1)
-                        targetWidth *= aspectRatio;
-                    else
-                        targetHeight /= aspectRatio;
-                    conf.setValue("sig_obj." + sigProfile + ".table.main.Style.padding", "0");
-                    conf.setValue("sig_obj." + sigProfile + ".pos", "w:"+targetWidth+";f:0");
-                    conf.setValue("sig_obj." + sigProfile + ".table.main.Style.imagescaletofit", targetWidth+";"+targetHeight);
-                }
-                SignParameter param = PdfAsFactory.createSignParameter(conf, null, null);
-                param.setSignatureProfileId(sigProfile);
-                
-                return pdfas.generateVisibleSignaturePreview(param, cert, 72 * 4);
-            }
+            Configuration conf = createTransactionConfiguration(sigProfile, sigEmblem);
+            SignParameter param = PdfAsFactory.createSignParameter(conf, null, null);
+            param.setSignatureProfileId(sigProfile);
+
+            return pdfas.generateVisibleSignaturePreview(param, cert, 72 * 4);
         } catch (Exception e) {
             log.error("Failed to get signature placeholder", e);
-            return new BufferedImage(229, 77, BufferedImage.TYPE_INT_RGB);
+            return null;
         }
     }
 
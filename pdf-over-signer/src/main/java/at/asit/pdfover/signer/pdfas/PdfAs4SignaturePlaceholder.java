@@ -1,39 +1,123 @@
 package at.asit.pdfover.signer.pdfas;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.TreeMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.imageio.ImageIO;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import at.asit.pdfover.commons.Constants;
 import at.asit.pdfover.commons.Profile;
 import at.asit.pdfover.commons.utils.ImageUtil;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * caches placeholders for signature parameters (placeholder generation is pretty slow)
+ *
+ * Placeholders are kept in a small in-memory LRU and persisted as PNG files
+ * (with a manifest of their keys) under the config directory, so they are
+ * available right away after a restart.
  */
+@Slf4j
 public final class PdfAs4SignaturePlaceholder implements Runnable {
-    private static TreeMap<PdfAs4SignatureParameter, PdfAs4SignaturePlaceholder> cache = new TreeMap<>(
-        Comparator
-          .comparing(PdfAs4SignatureParameter::getPdfAsSignatureProfileId)
-          .thenComparing((p) -> { return (p.emblem != null) ? p.emblem.getOriginalFileHash() : ""; })
-          .thenComparing((p) -> { return p.signatureNote; }, Comparator.nullsFirst(String::compareTo))
-          .thenComparing((p) -> { return p.targetLogoSize; })
-    );
+    private static final int MAX_ENTRIES = 16;
+    private static final int MAX_DISK_ENTRIES = 32;
+
+    private static final File DISK_CACHE_DIR = new File(Constants.CONFIG_DIRECTORY, "placeholders");
+    private static final String MANIFEST_FILENAME = "manifest.properties";
+
+    /** key to placeholder, in access order */
+    private static final LinkedHashMap<String, PdfAs4SignaturePlaceholder> cache = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PdfAs4SignaturePlaceholder> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "PdfAs4SignaturePlaceholder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong diskHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong generationNanos = new AtomicLong();
+
+    /** @return the number of requests served from memory */
+    public static long getCacheHits() { return hits.get(); }
+    /** @return the number of requests served from the disk cache */
+    public static long getDiskCacheHits() { return diskHits.get(); }
+    /** @return the number of requests that required generating a placeholder */
+    public static long getCacheMisses() { return misses.get(); }
+    /** @return the average time spent generating a placeholder, in milliseconds */
+    public static double getAverageGenerationMillis() {
+        long n = misses.get();
+        return (n == 0) ? 0 : (generationNanos.get() / 1e6) / n;
+    }
+
+    /**
+     * @param param the signature parameter
+     * @return a key identifying everything the placeholder depends on
+     */
+    private static String keyFor(PdfAs4SignatureParameter param) {
+        return String.join("\0",
+            param.getPdfAsSignatureProfileId(),
+            (param.emblem != null) ? param.emblem.getOriginalFileHash() : "",
+            Objects.toString(param.signatureNote, ""),
+            Double.toString(param.targetLogoSize));
+    }
 
     /**
      * request a placeholder for the specified parameter asynchronously
      * @param callback the callback to be invoked on completion (may also be invoked before this function returns!)
      */
     public static void For(PdfAs4SignatureParameter param, Consumer<PdfAs4SignaturePlaceholder> callback) {
+        String key = keyFor(param);
+        PdfAs4SignaturePlaceholder placeholder;
         synchronized(cache) {
-            cache.computeIfAbsent(param, (p) -> new PdfAs4SignaturePlaceholder(p)).AddCallback(callback);
+            placeholder = cache.get(key);
+            if (placeholder != null) {
+                hits.incrementAndGet();
+            } else {
+                placeholder = new PdfAs4SignaturePlaceholder(key, param);
+                cache.put(key, placeholder);
+                executor.execute(placeholder);
+            }
         }
+        placeholder.AddCallback(callback);
     }
 
+    private final String key;
     private final PdfAs4SignatureParameter param;
-    private PdfAs4SignaturePlaceholder(PdfAs4SignatureParameter param) {
+    private PdfAs4SignaturePlaceholder(String key, PdfAs4SignatureParameter param) {
+        this.key = key;
         this.param = param;
-        new Thread(this).start();
     }
 
     private java.awt.image.BufferedImage awtImageData;
@@ -57,12 +141,131 @@ public final class PdfAs4SignaturePlaceholder implements Runnable {
         c.accept(this);
     }
 
+    /** fingerprint of the PDF-AS configuration, taken once since PDF-AS also reads it only once */
+    private static String configFingerprint = null;
+
+    /**
+     * @return a hash over the names, sizes and modification times of all files
+     *         in the PDF-AS configuration directory (signature block layout, texts, images)
+     */
+    private static synchronized String getConfigFingerprint() {
+        if (configFingerprint == null) {
+            StringBuilder stamp = new StringBuilder();
+            Path cfg = Paths.get(PdfAs4Helper.getWorkDir(), "cfg");
+            try (Stream<Path> files = Files.walk(cfg)) {
+                files.filter(Files::isRegularFile).sorted().forEach(f -> {
+                    File file = f.toFile();
+                    stamp.append(cfg.relativize(f)).append(':').append(file.length())
+                        .append(':').append(file.lastModified()).append('\n');
+                });
+            } catch (IOException | UncheckedIOException e) {
+                log.debug("Failed to fingerprint PDF-AS configuration", e);
+            }
+            configFingerprint = DigestUtils.sha256Hex(stamp.toString());
+        }
+        return configFingerprint;
+    }
+
+    /** the file name of this placeholder in the disk cache (the key may contain arbitrary characters) */
+    private String getDiskCacheName() {
+        return DigestUtils.sha256Hex(Constants.APP_VERSION + "\0" + getConfigFingerprint() + "\0" + this.key);
+    }
+
+    private BufferedImage loadFromDisk() {
+        String name = getDiskCacheName();
+        File image = new File(DISK_CACHE_DIR, name + ".png");
+        if (!image.isFile())
+            return null;
+        try {
+            Properties manifest = loadManifest();
+            if (!this.key.equals(manifest.getProperty(name)))
+                return null;
+
+            BufferedImage img = ImageIO.read(image);
+            if (img == null)
+                return null;
+            int type = img.getType();
+            if ((type != BufferedImage.TYPE_INT_RGB) && (type != BufferedImage.TYPE_3BYTE_BGR)) {
+                /* PNG decoding picks its own pixel layout, normalize to one convertToSWT copies directly */
+                BufferedImage rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = rgb.createGraphics();
+                g.drawImage(img, 0, 0, null);
+                g.dispose();
+                img = rgb;
+            }
+            image.setLastModified(System.currentTimeMillis());
+            return img;
+        } catch (IOException e) {
+            log.debug("Failed to load placeholder from disk cache", e);
+            return null;
+        }
+    }
+
+    private void storeToDisk(BufferedImage img) {
+        String name = getDiskCacheName();
+        try {
+            synchronized (PdfAs4SignaturePlaceholder.class) {
+                DISK_CACHE_DIR.mkdirs();
+                File tmp = File.createTempFile(name, ".tmp", DISK_CACHE_DIR);
+                ImageIO.write(img, "png", tmp);
+                Files.move(tmp.toPath(), new File(DISK_CACHE_DIR, name + ".png").toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+                Properties manifest = loadManifest();
+                manifest.setProperty(name, this.key);
+                pruneDiskCache(manifest);
+                try (OutputStream out = Files.newOutputStream(new File(DISK_CACHE_DIR, MANIFEST_FILENAME).toPath())) {
+                    manifest.store(out, null);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to store placeholder in disk cache", e);
+        }
+    }
+
+    private static Properties loadManifest() throws IOException {
+        Properties manifest = new Properties();
+        File file = new File(DISK_CACHE_DIR, MANIFEST_FILENAME);
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                manifest.load(in);
+            }
+        }
+        return manifest;
+    }
+
+    /** drop the least recently used images beyond MAX_DISK_ENTRIES */
+    private static void pruneDiskCache(Properties manifest) {
+        File[] images = DISK_CACHE_DIR.listFiles((dir, name) -> name.endsWith(".png"));
+        if (images == null || images.length <= MAX_DISK_ENTRIES)
+            return;
+        Arrays.sort(images, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < images.length - MAX_DISK_ENTRIES; ++i) {
+            String name = images[i].getName();
+            manifest.remove(name.substring(0, name.length() - ".png".length()));
+            images[i].delete();
+        }
+    }
 
     @Override
     public void run() {
         if (!Profile.INVISIBLE.name().equals(this.param.getPdfAsSignatureProfileId())) {
-            this.awtImageData = (java.awt.image.BufferedImage) this.param.getPlaceholder();
+            BufferedImage img = loadFromDisk();
+            if (img != null) {
+                diskHits.incrementAndGet();
+            } else {
+                long start = System.nanoTime();
+                img = (java.awt.image.BufferedImage) this.param.getPlaceholder();
+                generationNanos.addAndGet(System.nanoTime() - start);
+                misses.incrementAndGet();
+                if (img != null)
+                    storeToDisk(img);
+                else
+                    img = new BufferedImage(229, 77, BufferedImage.TYPE_INT_RGB);
+            }
+            this.awtImageData = img;
             this.swtImageData = ImageUtil.convertToSWT(this.awtImageData);
+            log.debug("Placeholder cache: {} hits, {} disk hits, {} misses, {} ms average generation",
+                    hits.get(), diskHits.get(), misses.get(), getAverageGenerationMillis());
         } else {
             this.awtImageData = null;
             this.swtImageData = null;
@@ -1,21 +1,22 @@
 package at.asit.pdfover.signer.pdfas;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.UUID;
 
 import javax.activation.DataSource;
 
 import at.asit.pdfover.commons.Constants;
 import at.asit.pdfover.commons.Profile;
-import at.asit.pdfover.signer.ByteArrayDocumentSource;
+import at.asit.pdfover.signer.SessionClosedException;
 import at.asit.pdfover.signer.SignResult;
 import at.asit.pdfover.signer.SignatureException;
 import at.asit.pdfover.signer.SignaturePosition;
+import at.asit.pdfover.signer.SpillToFileOutputStream;
 import at.asit.pdfover.signer.UserCancelledException;
 import at.gv.egiz.pdfas.common.exceptions.PDFASError;
 import at.gv.egiz.pdfas.common.exceptions.PdfAsException;
 import at.gv.egiz.pdfas.common.exceptions.SLPdfAsException;
-import at.gv.egiz.pdfas.lib.api.ByteArrayDataSource;
 import at.gv.egiz.pdfas.lib.api.Configuration;
 import at.gv.egiz.pdfas.lib.api.IConfigurationConstants;
 import at.gv.egiz.pdfas.lib.api.PdfAs;
@@ -26,10 +27,12 @@ import at.gv.egiz.pdfas.sigs.pades.PAdESSigner;
 import at.gv.egiz.sl.util.ISLConnector;
 import at.knowcenter.wag.egov.egiz.pdf.TablePos;
 import at.knowcenter.wag.egov.egiz.pdf.TablePos.PAGE_MODE;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * PDF AS Signer Implementation
  */
+@Slf4j
 public class PdfAs4Signer {
 
 	/**
@@ -51,82 +54,55 @@ public class PdfAs4Signer {
 
 		String sigProfile = parameter.getPdfAsSignatureProfileId();
 		String sigEmblem = (parameter.emblem == null ? null : parameter.emblem.getCachedFileName());
-		String sigNote = parameter.signatureNote;
 		String sigPos = null;
 		if (parameter.signaturePosition != null) {
 			sigPos = parameter.getPdfAsSignaturePosition();
 		}
 
-		PdfAs pdfas = PdfAs4Helper.getPdfAs();
-		synchronized (PdfAs4Helper.class) {
-			Configuration config = pdfas.getConfiguration();
-			if (sigEmblem != null && !sigEmblem.trim().isEmpty()) {
-				config.setValue("sig_obj." + sigProfile + ".value.SIG_LABEL", sigEmblem);
-			}
-
-			if(sigNote != null) {
-				config.setValue("sig_obj." + sigProfile + ".value.SIG_NOTE", sigNote);
-			}
-
-			// TODO encapsulate this parameter magic in PdfAs4SignatureParameter
-			if (parameter.signatureProfile == Profile.BASE_LOGO)
-			{
-				int emblemWidth = (parameter.emblem != null) ? parameter.emblem.getWidth() : 1;
-				int emblemHeight = (parameter.emblem != null) ? parameter.emblem.getHeight() : 1;
-				double aspectRatio = ((double)emblemWidth) / emblemHeight;
-				double targetWidth = parameter.targetLogoSize * Constants.PDF_UNITS_PER_MM;
-				double targetHeight = parameter.targetLogoSize * Constants.PDF_UNITS_PER_MM;
-				if (aspectRatio < 1)
-					targetWidth *= aspectRatio;
-				else
-					targetHeight /= aspectRatio;
-				config.setValue("sig_obj." + sigProfile + ".table.main.Style.padding", "0");
-				config.setValue("sig_obj." + sigProfile + ".pos", "w:"+targetWidth+";f:0");
-				config.setValue("sig_obj." + sigProfile + ".table.main.Style.imagescaletofit", targetWidth+";"+targetHeight);
-			}
-
-			PdfAs4SigningState state = new PdfAs4SigningState();
-			ByteArrayOutputStream output = new ByteArrayOutputStream();
-			DataSource input = new ByteArrayDataSource(parameter.inputDocument.getByteArray());
-			SignParameter param = PdfAsFactory.createSignParameter(config, input, output);
-			if (sigPos != null) {
-				param.setSignaturePosition(sigPos);
-			}
-			param.setSignatureProfileId(sigProfile);
-			String id = UUID.randomUUID().toString();
-			param.setTransactionId(id);
-
-			if (parameter.searchForPlaceholderSignatures) {
-				param.setPlaceHolderSearchEnabled(true);
-				param.getConfiguration().setValue(IConfigurationConstants.PLACEHOLDER_MODE, "1");
-				param.getConfiguration().setValue(IConfigurationConstants.PLACEHOLDER_SEARCH_ENABLED, IConfigurationConstants.TRUE);
-				if (parameter.placeholderId != null)
-					param.setPlaceHolderId(parameter.placeholderId);
-			}
+		Configuration config = parameter.createTransactionConfiguration(sigProfile, sigEmblem);
 
-			state.signParameter = param;
-			state.output = output;
-			return state;
+		PdfAs4SigningState state = new PdfAs4SigningState();
+		SpillToFileOutputStream output = new SpillToFileOutputStream(parameter.outputSpillThreshold, new File(Constants.TEMP_DIRECTORY));
+		DataSource input = new DocumentDataSource(parameter.inputDocument);
+		SignParameter param = PdfAsFactory.createSignParameter(config, input, output);
+		if (sigPos != null) {
+			param.setSignaturePosition(sigPos);
 		}
+		param.setSignatureProfileId(sigProfile);
+		String id = UUID.randomUUID().toString();
+		param.setTransactionId(id);
+
+		if (parameter.searchForPlaceholderSignatures) {
+			param.setPlaceHolderSearchEnabled(true);
+			param.getConfiguration().setValue(IConfigurationConstants.PLACEHOLDER_MODE, "1");
+			param.getConfiguration().setValue(IConfigurationConstants.PLACEHOLDER_SEARCH_ENABLED, IConfigurationConstants.TRUE);
+			if (parameter.placeholderId != null)
+				param.setPlaceHolderId(parameter.placeholderId);
+		}
+
+		state.signParameter = param;
+		state.output = output;
+		return state;
 	}
 
 	public static SignResult sign(PdfAs4SigningState state) throws SignatureException, UserCancelledException {
+		boolean success = false;
 		try {
 			if (state == null) {
 				throw new SignatureException("Incorrect SigningState!");
 			}
 
 			PdfAs pdfas = PdfAs4Helper.getPdfAs();
-			synchronized (PdfAs4Helper.class) {
-				// Retrieve objects
-				SignParameter param = state.signParameter;
+			// Retrieve objects
+			SignParameter param = state.signParameter;
 
-				Configuration config = param.getConfiguration();
-				config.setValue(IConfigurationConstants.SL_REQUEST_TYPE,
-						state.useBase64Request ?
-								IConfigurationConstants.SL_REQUEST_TYPE_BASE64 :
-									IConfigurationConstants.SL_REQUEST_TYPE_UPLOAD);
+			Configuration config = param.getConfiguration();
+			config.setValue(IConfigurationConstants.SL_REQUEST_TYPE,
+					state.useBase64Request ?
+							IConfigurationConstants.SL_REQUEST_TYPE_BASE64 :
+								IConfigurationConstants.SL_REQUEST_TYPE_UPLOAD);
 
+			for (int attempt = 1; ; ++attempt) {
 				IPlainSigner signer;
 				if (state.bkuConnector != null) {
 					ISLConnector connector = new PdfAs4BKUSLConnector(state.bkuConnector);
@@ -138,27 +114,39 @@ public class PdfAs4Signer {
 				}
 				param.setPlainSigner(signer);
 
-				pdfas.sign(param);
-
-				SignResult result = new SignResult();
-
-				if (param.getSignaturePosition() != null) {
-					TablePos tp = new TablePos(param.getSignaturePosition());
-					SignaturePosition sp;
-					if (tp.isXauto() && tp.isYauto())
-						sp = new SignaturePosition();
-					else if (tp.getPageMode() == PAGE_MODE.AUTO)
-						sp = new SignaturePosition(tp.getPosX(), tp.getPosY());
-					else if (param.getSignatureProfileId().contains(Profile.AMTSSIGNATURBLOCK.name()))
-						sp = new SignaturePosition();
-					else
-						sp = new SignaturePosition(tp.getPosX(), tp.getPosY(), tp.getPage());
-					result.setSignaturePosition(sp);
+				try {
+					pdfas.sign(param);
+					break;
+				} catch (PDFASError ex) {
+					/* whoever logs in next may be someone else, so read the certificate again */
+					if ((attempt > 1) || !isSessionClosed(ex) || (state.output.getCount() > 0))
+						throw ex;
+					log.info("BKU session closed while signing, starting over");
+					PdfAs4CertificateCache.invalidate(state.bkuConnector.getSessionIdentity());
 				}
+			}
 
-				result.setSignedDocument(new ByteArrayDocumentSource(state.output.toByteArray()));
-				return result;
+			SignResult result = new SignResult();
+
+			if (param.getSignaturePosition() != null) {
+				TablePos tp = new TablePos(param.getSignaturePosition());
+				SignaturePosition sp;
+				if (tp.isXauto() && tp.isYauto())
+					sp = new SignaturePosition();
+				else if (tp.getPageMode() == PAGE_MODE.AUTO)
+					sp = new SignaturePosition(tp.getPosX(), tp.getPosY());
+				else if (param.getSignatureProfileId().contains(Profile.AMTSSIGNATURBLOCK.name()))
+					sp = new SignaturePosition();
+				else
+					sp = new SignaturePosition(tp.getPosX(), tp.getPosY(), tp.getPage());
+				result.setSignaturePosition(sp);
 			}
+
+			result.setSignedDocument(state.output.toDocumentSource());
+			success = true;
+			return result;
+		} catch (IOException ex) {
+			throw new SignatureException("Failed to store signed document", ex);
 		} catch (PdfAsException | PDFASError ex) {
 			Throwable rootCause = ex;
 			while (rootCause.getCause() != null)
@@ -170,6 +158,18 @@ public class PdfAs4Signer {
 			} catch (ClassCastException e2) { /* fall through to wrapped throw */}
 			
 			throw new SignatureException(ex);
+		} finally {
+			/* don't leave a spilled temporary file behind, whatever went wrong */
+			if (!success && (state != null) && (state.output != null))
+				state.output.discard();
+		}
+	}
+
+	private static boolean isSessionClosed(Throwable ex) {
+		for (Throwable c = ex; c != null; c = c.getCause()) {
+			if (c instanceof SessionClosedException)
+				return true;
 		}
+		return false;
 	}
 }
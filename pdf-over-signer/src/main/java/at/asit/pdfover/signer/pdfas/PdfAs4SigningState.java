@@ -16,14 +16,11 @@
 package at.asit.pdfover.signer.pdfas;
 
 //Imports
-import java.io.ByteArrayOutputStream;
-
 import at.asit.pdfover.signer.BkuSlConnector;
 import at.asit.pdfover.signer.SignatureException;
-import at.gv.egiz.pdfas.common.exceptions.PDFASError;
+import at.asit.pdfover.signer.SpillToFileOutputStream;
 import at.gv.egiz.pdfas.lib.api.sign.IPlainSigner;
 import at.gv.egiz.pdfas.lib.api.sign.SignParameter;
-import at.gv.egiz.pdfas.sigs.pades.PAdESSignerKeystore;
 
 /**
  * Signing State for PDFAS Wrapper
@@ -45,7 +42,10 @@ public class PdfAs4SigningState {
 	 */
 	public SignParameter signParameter;
 
-	public ByteArrayOutputStream output;
+	/**
+	 * The sink for the signed document
+	 */
+	public SpillToFileOutputStream output;
 
 	public BkuSlConnector bkuConnector = null;
 
@@ -58,11 +58,7 @@ public class PdfAs4SigningState {
 	 */
 	public void setKeystoreSigner(String file, String alias, String kspassword,
 			String keypassword, String type) throws SignatureException {
-		try {
-			this.keystoreSigner = new PAdESSignerKeystore(file, alias, kspassword, keypassword, type);
-		} catch (PDFASError e) {
-			throw new SignatureException(e);
-		}
+		this.keystoreSigner = PdfAs4KeystoreSignerCache.getSigner(file, alias, kspassword, keypassword, type);
 	}
 
 	/**
@@ -0,0 +1,168 @@
+package at.asit.pdfover.signer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import at.gv.egiz.pdfas.common.utils.PDFUtils;
+
+public class BlackedOutDocumentSourceTest {
+
+    /* larger than the 8 KiB buffers of the streams reading it */
+    private static final int CONTENTS_LENGTH = 3 * 8192 + 123;
+
+    private byte[] signed;
+    private int[] byteRange;
+    private byte[] expected;
+
+    /**
+     * A document laid out like a signed PDF: the signature dictionary's
+     * /Contents hex string is the gap between the two signed byte ranges
+     */
+    @BeforeEach
+    public void setUp() {
+        StringBuilder prefix = new StringBuilder("%PDF-1.7\n");
+        for (int i = 0; prefix.length() < 10000; ++i)
+            prefix.append(i).append(" 0 obj\n<< /Type /Page >>\nendobj\n");
+        prefix.append("99 0 obj\n<< /Type /Sig /Filter /Adobe.PPKLite /SubFilter /ETSI.CAdES.detached /Contents ");
+        StringBuilder contents = new StringBuilder("<");
+        for (int i = 0; i < CONTENTS_LENGTH; ++i)
+            contents.append("0123456789ABCDEF".charAt((i * 7) % 16));
+        contents.append(">");
+        String suffix = " /ByteRange [ ] >>\nendobj\nxref\n0 1\n0000000000 65535 f \ntrailer\n<< /Size 100 >>\n%%EOF\n";
+
+        this.signed = (prefix.toString() + contents + suffix).getBytes(StandardCharsets.US_ASCII);
+        int contentsStart = prefix.length();
+        int contentsEnd = contentsStart + contents.length();
+        this.byteRange = new int[] { 0, contentsStart, contentsEnd, this.signed.length - contentsEnd };
+        this.expected = PDFUtils.blackOutSignature(this.signed.clone(), this.byteRange);
+    }
+
+    private BlackedOutDocumentSource blackedOut(DocumentSource source) {
+        return new BlackedOutDocumentSource(source, this.byteRange);
+    }
+
+    /**
+     * A source returning at most a few bytes per read and skip, so that
+     * reads end anywhere within and around the blacked out region
+     */
+    private DocumentSource choppy(int chunk) {
+        return new DocumentSource() {
+            @Override
+            public InputStream getInputStream() {
+                return new FilterInputStream(new ByteArrayDocumentSource(BlackedOutDocumentSourceTest.this.signed).getInputStream()) {
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        return super.read(b, off, Math.min(len, chunk));
+                    }
+
+                    @Override
+                    public long skip(long n) throws IOException {
+                        return super.skip(Math.min(n, chunk));
+                    }
+                };
+            }
+
+            @Override
+            public long getLength() {
+                return BlackedOutDocumentSourceTest.this.signed.length;
+            }
+
+            @Override
+            public byte[] getByteArray() {
+                return BlackedOutDocumentSourceTest.this.signed;
+            }
+        };
+    }
+
+    private static byte[] readWithBuffer(InputStream in, int bufferSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize + 10];
+        int n;
+        while ((n = in.read(buffer, 5, bufferSize)) >= 0)
+            out.write(buffer, 5, n);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testFixtureIsBlackedOut() {
+        assertFalse(Arrays.equals(this.signed, this.expected));
+        assertEquals('<', this.expected[this.byteRange[1]]);
+        assertEquals('>', this.expected[this.byteRange[2] - 1]);
+    }
+
+    @Test
+    public void testReadAllBytes() throws IOException {
+        try (InputStream in = blackedOut(new ByteArrayDocumentSource(this.signed)).getInputStream()) {
+            assertArrayEquals(this.expected, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testSingleByteRead() throws IOException {
+        try (InputStream in = blackedOut(new ByteArrayDocumentSource(this.signed)).getInputStream()) {
+            for (int i = 0; i < this.expected.length; ++i)
+                assertEquals(this.expected[i] & 0xff, in.read(), "at " + i);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testBufferedReadAcrossBoundaries() throws IOException {
+        for (int bufferSize : new int[] { 1, 7, 1000, 4096, 8192, CONTENTS_LENGTH, this.signed.length }) {
+            try (InputStream in = blackedOut(new ByteArrayDocumentSource(this.signed)).getInputStream()) {
+                assertArrayEquals(this.expected, readWithBuffer(in, bufferSize), "buffer size " + bufferSize);
+            }
+            try (InputStream in = blackedOut(choppy(333)).getInputStream()) {
+                assertArrayEquals(this.expected, readWithBuffer(in, bufferSize), "short reads, buffer size " + bufferSize);
+            }
+        }
+    }
+
+    @Test
+    public void testMixedReadAndSkip() throws IOException {
+        int[] stops = {
+                this.byteRange[1] - 3, /* just before '<' */
+                this.byteRange[1] + 2, /* inside the contents */
+                this.byteRange[1] + 8192, /* further inside */
+                this.byteRange[2] - 2, /* on the last blacked out byte */
+                this.byteRange[2] + 1, /* past '>' */
+        };
+        try (InputStream in = blackedOut(choppy(100)).getInputStream()) {
+            long position = 0;
+            for (int stop : stops) {
+                /* skip half the way, read the rest in single bytes and buffers */
+                long target = position + (stop - position) / 2;
+                while (position < target)
+                    position += in.skip(target - position);
+                assertEquals(this.expected[(int) position] & 0xff, in.read(), "at " + position);
+                ++position;
+                byte[] buffer = new byte[stop - (int) position];
+                int n = in.readNBytes(buffer, 0, buffer.length);
+                assertArrayEquals(Arrays.copyOfRange(this.expected, (int) position, (int) position + n), buffer);
+                position += n;
+            }
+            assertArrayEquals(Arrays.copyOfRange(this.expected, (int) position, this.expected.length), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testGetByteArray() {
+        byte[] original = this.signed.clone();
+        assertArrayEquals(this.expected, blackedOut(new ByteArrayDocumentSource(this.signed)).getByteArray());
+        assertArrayEquals(original, this.signed);
+    }
+
+    @Test
+    public void testGetLength() {
+        assertEquals(this.signed.length, blackedOut(new ByteArrayDocumentSource(this.signed)).getLength());
+    }
+}
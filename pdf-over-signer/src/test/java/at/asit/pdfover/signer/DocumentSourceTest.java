@@ -0,0 +1,86 @@
+package at.asit.pdfover.signer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DocumentSourceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private byte[] data;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.data = new byte[3 * 65536 + 17];
+        for (int i = 0; i < this.data.length; ++i)
+            this.data[i] = (byte) (i * 31);
+        this.file = Files.write(this.tempDir.resolve("document.pdf"), this.data);
+    }
+
+    private static byte[] transfer(DocumentSource source) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(source.getLength(), source.transferTo(Channels.newChannel(out)));
+        return out.toByteArray();
+    }
+
+    private static byte[] stream(DocumentSource source) throws IOException {
+        try (InputStream in = source.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testFileSource() throws IOException {
+        PDFFileDocumentSource source = new PDFFileDocumentSource(this.file.toFile());
+        assertEquals(this.data.length, source.getLength());
+        assertArrayEquals(this.data, transfer(source));
+        assertArrayEquals(this.data, stream(source));
+        assertArrayEquals(this.data, source.getByteArray());
+    }
+
+    @Test
+    public void testFileSourceReadsFileOnEveryAccess() throws IOException {
+        PDFFileDocumentSource source = new PDFFileDocumentSource(this.file.toFile());
+        assertArrayEquals(this.data, transfer(source));
+
+        byte[] changed = { 1, 2, 3 };
+        Files.write(this.file, changed);
+        assertEquals(changed.length, source.getLength());
+        assertArrayEquals(changed, transfer(source));
+        assertArrayEquals(changed, stream(source));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        Path empty = Files.createFile(this.tempDir.resolve("empty.pdf"));
+        PDFFileDocumentSource source = new PDFFileDocumentSource(empty.toFile());
+        assertEquals(0, source.getLength());
+        assertArrayEquals(new byte[0], transfer(source));
+    }
+
+    @Test
+    public void testByteArraySource() throws IOException {
+        ByteArrayDocumentSource source = new ByteArrayDocumentSource(this.data);
+        assertArrayEquals(this.data, transfer(source));
+        assertArrayEquals(this.data, stream(source));
+        assertSame(this.data, source.getByteArray());
+    }
+
+    @Test
+    public void testDefaultTransferStreams() throws IOException {
+        DocumentSource source = new BlackedOutDocumentSource(new ByteArrayDocumentSource(this.data), new int[0]);
+        assertArrayEquals(this.data, transfer(source));
+    }
+}
@@ -0,0 +1,99 @@
+package at.asit.pdfover.signer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SpillToFileOutputStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; ++i)
+            data[i] = (byte) (i * 31);
+        return data;
+    }
+
+    private int tempFileCount() {
+        return this.tempDir.toFile().list().length;
+    }
+
+    @Test
+    public void testStaysInMemoryUpToThreshold() throws IOException {
+        byte[] expected = data(1024);
+        SpillToFileOutputStream out = new SpillToFileOutputStream(1024, this.tempDir.toFile());
+        out.write(expected, 0, 1000);
+        out.write(expected, 1000, 24);
+        assertEquals(1024, out.getCount());
+        assertEquals(0, tempFileCount());
+
+        DocumentSource result = out.toDocumentSource();
+        assertTrue(result instanceof ByteArrayDocumentSource);
+        assertArrayEquals(expected, result.getByteArray());
+    }
+
+    @Test
+    public void testSpillsWhenThresholdIsExceeded() throws IOException {
+        byte[] expected = data(4096);
+        SpillToFileOutputStream out = new SpillToFileOutputStream(1024, this.tempDir.toFile());
+        out.write(expected, 0, 1000);
+        assertEquals(0, tempFileCount());
+        out.write(expected[1000]);
+        out.write(expected, 1001, 100);
+        assertEquals(1, tempFileCount());
+        out.write(expected, 1101, expected.length - 1101);
+
+        DocumentSource result = out.toDocumentSource();
+        assertTrue(result instanceof TemporaryFileDocumentSource);
+        assertEquals(expected.length, result.getLength());
+        assertArrayEquals(expected, result.getByteArray());
+
+        ((TemporaryFileDocumentSource) result).dispose();
+        assertEquals(0, tempFileCount());
+    }
+
+    @Test
+    public void testZeroThresholdWritesToFileRightAway() throws IOException {
+        SpillToFileOutputStream out = new SpillToFileOutputStream(0, this.tempDir.toFile());
+        out.write(42);
+        assertEquals(1, tempFileCount());
+        DocumentSource result = out.toDocumentSource();
+        assertTrue(result instanceof TemporaryFileDocumentSource);
+        assertArrayEquals(new byte[] { 42 }, result.getByteArray());
+    }
+
+    @Test
+    public void testDiscardDeletesSpilledFile() throws IOException {
+        SpillToFileOutputStream out = new SpillToFileOutputStream(16, this.tempDir.toFile());
+        out.write(data(64));
+        assertEquals(1, tempFileCount());
+        out.discard();
+        assertEquals(0, tempFileCount());
+        assertThrows(IOException.class, () -> out.write(1));
+    }
+
+    @Test
+    public void testMoveToKeepsContent() throws IOException {
+        byte[] expected = data(2048);
+        SpillToFileOutputStream out = new SpillToFileOutputStream(0, this.tempDir.toFile());
+        out.write(expected);
+        TemporaryFileDocumentSource result = (TemporaryFileDocumentSource) out.toDocumentSource();
+
+        File target = this.tempDir.resolve("target.pdf").toFile();
+        PDFFileDocumentSource moved = result.moveTo(target);
+        result.dispose();
+        assertTrue(target.isFile());
+        assertEquals(1, tempFileCount());
+        assertEquals(target, moved.getFile());
+        assertTrue(Arrays.equals(expected, moved.getByteArray()));
+        assertThrows(IllegalStateException.class, () -> result.moveTo(target));
+    }
+}
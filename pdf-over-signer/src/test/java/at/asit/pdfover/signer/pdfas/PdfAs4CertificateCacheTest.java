@@ -0,0 +1,140 @@
+package at.asit.pdfover.signer.pdfas;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBElement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import at.gv.egiz.sl.schema.InfoboxReadResponseType;
+import at.gv.egiz.sl.util.SLMarschaller;
+
+public class PdfAs4CertificateCacheTest {
+
+    /* self-signed, valid for ten years */
+    private static final String CERTIFICATE =
+            "MIIBlDCCATmgAwIBAgIUeOYBDZvh9p0SN/SG6uFE/53KQmAwCgYIKoZIzj0EAwIwHzEdMBsGA1UE" +
+            "AwwUUERGLU92ZXIgVGVzdCBTaWduZXIwHhcNMjYxMDE2MjIyNjA5WhcNMzYxMDEzMjIyNjA5WjAf" +
+            "MR0wGwYDVQQDDBRQREYtT3ZlciBUZXN0IFNpZ25lcjBZMBMGByqGSM49AgEGCCqGSM49AwEHA0IA" +
+            "BBoHPiH65ekIkD70VgUS3+4oKinXbcGa5JBu6QKuHgX67csC7+D/h397M6DPobgkIXR5lbsIbx7p" +
+            "6Jo5qphQPTyjUzBRMB0GA1UdDgQWBBTwZ4Z8vOGt0f8SnMVx1VmF8ZKBvjAfBgNVHSMEGDAWgBTw" +
+            "Z4Z8vOGt0f8SnMVx1VmF8ZKBvjAPBgNVHRMBAf8EBTADAQH/MAoGCCqGSM49BAMCA0kAMEYCIQDS" +
+            "cUHHxcpvi2PmMP4XV8OuPu03g7V3h5vdLc/ht2aXIQIhAIP6zLYrxRDhj+1JDhjb1LHhZdG8eu+n" +
+            "iEwrcDw1+KeD";
+
+    private static final String REQUEST = "<InfoboxReadRequest/>";
+
+    private static long notBefore;
+    private static long notAfter;
+
+    private long now;
+    private final Object session = new Object();
+
+    @BeforeAll
+    public static void readCertificate() throws Exception {
+        X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+                new ByteArrayInputStream(Base64.getDecoder().decode(CERTIFICATE)));
+        notBefore = certificate.getNotBefore().getTime();
+        notAfter = certificate.getNotAfter().getTime();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        this.now = notBefore + TimeUnit.DAYS.toMillis(1);
+        PdfAs4CertificateCache.clock = () -> this.now;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PdfAs4CertificateCache.invalidateAll();
+        PdfAs4CertificateCache.clock = System::currentTimeMillis;
+    }
+
+    private static InfoboxReadResponseType response(String base64Certificate) throws Exception {
+        JAXBElement<?> element = (JAXBElement<?>) SLMarschaller.unmarshalFromString(
+                "<sl:InfoboxReadResponse xmlns:sl=\"http://www.buergerkarte.at/namespaces/securitylayer/1.2#\">" +
+                "<sl:BinaryFileData><sl:Base64Content>" + base64Certificate + "</sl:Base64Content></sl:BinaryFileData>" +
+                "</sl:InfoboxReadResponse>");
+        return (InfoboxReadResponseType) element.getValue();
+    }
+
+    @Test
+    public void testCachedPerSessionAndRequest() throws Exception {
+        InfoboxReadResponseType response = response(CERTIFICATE);
+        PdfAs4CertificateCache.put(this.session, REQUEST, response);
+
+        assertSame(response, PdfAs4CertificateCache.get(this.session, REQUEST));
+        assertNull(PdfAs4CertificateCache.get(new Object(), REQUEST));
+        assertNull(PdfAs4CertificateCache.get(this.session, "<OtherRequest/>"));
+    }
+
+    @Test
+    public void testNoSessionNoCaching() throws Exception {
+        PdfAs4CertificateCache.put(null, REQUEST, response(CERTIFICATE));
+        assertNull(PdfAs4CertificateCache.get(null, REQUEST));
+    }
+
+    @Test
+    public void testExpiresAfterTTL() throws Exception {
+        PdfAs4CertificateCache.put(this.session, REQUEST, response(CERTIFICATE));
+
+        this.now += PdfAs4CertificateCache.TTL_MILLIS - 1;
+        assertNotNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+        this.now += 1;
+        assertNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+    }
+
+    @Test
+    public void testExpiresWithCertificate() throws Exception {
+        this.now = notAfter - TimeUnit.MINUTES.toMillis(5);
+        PdfAs4CertificateCache.put(this.session, REQUEST, response(CERTIFICATE));
+
+        this.now = notAfter - 1;
+        assertNotNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+        this.now = notAfter;
+        assertNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+    }
+
+    @Test
+    public void testExpiredCertificateNotCached() throws Exception {
+        this.now = notAfter + 1;
+        PdfAs4CertificateCache.put(this.session, REQUEST, response(CERTIFICATE));
+        assertNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+    }
+
+    @Test
+    public void testNotYetValidCertificateNotCached() throws Exception {
+        this.now = notBefore - 1;
+        PdfAs4CertificateCache.put(this.session, REQUEST, response(CERTIFICATE));
+        assertNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+    }
+
+    @Test
+    public void testInvalidCertificateNotCached() throws Exception {
+        PdfAs4CertificateCache.put(this.session, REQUEST, response("MAA="));
+        assertNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        Object other = new Object();
+        PdfAs4CertificateCache.put(this.session, REQUEST, response(CERTIFICATE));
+        PdfAs4CertificateCache.put(other, REQUEST, response(CERTIFICATE));
+
+        PdfAs4CertificateCache.invalidate(this.session);
+        assertNull(PdfAs4CertificateCache.get(this.session, REQUEST));
+        assertNotNull(PdfAs4CertificateCache.get(other, REQUEST));
+
+        PdfAs4CertificateCache.invalidateAll();
+        assertNull(PdfAs4CertificateCache.get(other, REQUEST));
+    }
+}